@@ -0,0 +1,125 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.objectweb.asm.Label;
+
+/**
+ * the pooled method visitor of a {@link ParameterStackClassVisitor}, which keeps the figures of a
+ * {@link MethodResult} as it simulates, and hands the result on at the end of each method. The visitor is borrowed
+ * from its pool for the length of a method, and released back to it at the end.
+ */
+class AnalysisMethodVisitor extends ParameterStackMethodVisitor {
+
+    private String className;
+    private String methodName;
+    private String descriptor;
+    private int access;
+    private int maxDepth;
+    private List<CallSiteResult> callSites;
+    private Consumer<? super MethodResult> resultConsumer;
+    private ParameterStackMethodVisitorPool<AnalysisMethodVisitor> pool;
+
+    AnalysisMethodVisitor(int api, ParameterStack parameterStack) {
+        super(api, false, null, parameterStack);
+        addListener(new ParameterStackListener() {
+            @Override
+            public void onPush(int opcode, int count, ParameterStack stack) {
+                recordDepth();
+            }
+        });
+    }
+
+    /**
+     * readies this visitor, already reset by its pool, to collect the result of a method
+     */
+    void begin(String owner, String name, String methodDescriptor, int methodAccess, Consumer<? super MethodResult> consumer,
+            ParameterStackMethodVisitorPool<AnalysisMethodVisitor> visitorPool) {
+        className = owner;
+        methodName = name;
+        descriptor = methodDescriptor;
+        access = methodAccess;
+        maxDepth = 0;
+        callSites = null;
+        resultConsumer = consumer;
+        pool = visitorPool;
+        setMethodDescriptor(methodDescriptor);
+    }
+
+    /**
+     * counts the stack a frame sets up, which isn't pushed entry by entry
+     */
+    @Override
+    public void visitFrame(int type, int numLocal, Object[] local, int numStack, Object[] frameStack) {
+        super.visitFrame(type, numLocal, local, numStack, frameStack);
+        recordDepth();
+    }
+
+    /**
+     * counts the caught exception a handler starts with
+     */
+    @Override
+    public void visitLabel(Label label) {
+        super.visitLabel(label);
+        recordDepth();
+    }
+
+    @Override
+    protected void visitCallSite(CallSite callSite) {
+        long constants = 0;
+        int count = Math.min(callSite.getArgumentCount(), 64);
+        for (int i = 0; i < count; i++) {
+            if (callSite.getArgument(i).getValue() != null) {
+                constants |= 1L << i;
+            }
+        }
+
+        if (callSites == null) {
+            callSites = new ArrayList<>();
+        }
+        callSites.add(new CallSiteResult(callSite.getOpcode(), callSite.getOwner(), callSite.getName(), callSite.getDescriptor(), constants));
+    }
+
+    @Override
+    public void visitEnd() {
+        super.visitEnd();
+
+        Consumer<? super MethodResult> consumer = resultConsumer;
+        MethodResult result = new MethodResult(className, methodName, descriptor, access, maxDepth,
+                (callSites == null) ? Collections.emptyList() : callSites);
+        callSites = null;
+        resultConsumer = null;
+        mv = null;
+        ParameterStackMethodVisitorPool<AnalysisMethodVisitor> visitorPool = pool;
+        pool = null;
+        visitorPool.release(this);
+        consumer.accept(result);
+    }
+
+    private void recordDepth() {
+        int depth = getStack().size();
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.util.function.Supplier;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * how much of the stack a {@link ParameterStackClassVisitor} simulates. Each mode picks the lightest stack that
+ * provides what it needs, and reads classes with the ClassReader flags that skip what it doesn't. Debug information
+ * is always skipped, as the local variable table is only visited after a method's code, too late to help the
+ * simulation. Stack map frames are read when the stack types matter, and skipped when only the depth is kept.
+ */
+public enum AnalysisMode {
+
+    /** types, constant values and fields of every entry, kept by an {@link ArrayParameterStack} */
+    VALUES(ArrayParameterStack::new, ClassReader.SKIP_DEBUG),
+
+    /** the type of every entry, kept by a {@link TypeParameterStack} */
+    TYPES(TypeParameterStack::new, ClassReader.SKIP_DEBUG),
+
+    /** the depth of the stack only, kept by a {@link DepthParameterStack} */
+    DEPTH(DepthParameterStack::new, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+    private final int readerFlags;
+    private final ParameterStackMethodVisitorPool<AnalysisMethodVisitor> pool;
+
+    AnalysisMode(Supplier<ParameterStack> stackFactory, int flags) {
+        readerFlags = flags;
+        pool = new ParameterStackMethodVisitorPool<>(() -> new AnalysisMethodVisitor(Opcodes.ASM9, stackFactory.get()));
+    }
+
+    /**
+     * @return the flags to pass to ClassReader.accept when analyzing in this mode
+     */
+    public int getReaderFlags() {
+        return readerFlags;
+    }
+
+    ParameterStackMethodVisitorPool<AnalysisMethodVisitor> getPool() {
+        return pool;
+    }
+}
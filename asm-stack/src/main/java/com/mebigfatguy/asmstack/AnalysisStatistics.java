@@ -0,0 +1,100 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the timings of one run of a {@link ParallelAnalyzer}: the wall clock time of the run, and the distribution of
+ * the time taken by each class, whose tail shows whether a few large classes held the run up
+ */
+public final class AnalysisStatistics {
+
+    private final int classCount;
+    private final long wallNanos;
+    private final long meanNanos;
+    private final long medianNanos;
+    private final long p99Nanos;
+    private final long maxNanos;
+
+    AnalysisStatistics(long[] classNanos, long wallNanos) {
+        long[] sorted = classNanos.clone();
+        Arrays.sort(sorted);
+        classCount = sorted.length;
+        this.wallNanos = wallNanos;
+
+        long total = 0;
+        for (long nanos : sorted) {
+            total += nanos;
+        }
+        meanNanos = (classCount == 0) ? 0 : total / classCount;
+        medianNanos = percentile(sorted, 50);
+        p99Nanos = percentile(sorted, 99);
+        maxNanos = (classCount == 0) ? 0 : sorted[classCount - 1];
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * @return the mean time taken to analyze one class
+     */
+    public long getMeanNanos() {
+        return meanNanos;
+    }
+
+    public long getMedianNanos() {
+        return medianNanos;
+    }
+
+    /**
+     * @return the time within which 99 percent of the classes were analyzed
+     */
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    /**
+     * @return the time taken by the slowest class
+     */
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+
+        int rank = (int) Math.ceil((sorted.length * percent) / 100.0);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    @Override
+    public String toString() {
+        return classCount + " classes in " + TimeUnit.NANOSECONDS.toMillis(wallNanos) + " ms, per class: mean " + TimeUnit.NANOSECONDS.toMicros(meanNanos)
+                + " us, median " + TimeUnit.NANOSECONDS.toMicros(medianNanos) + " us, p99 " + TimeUnit.NANOSECONDS.toMicros(p99Nanos) + " us, max "
+                + TimeUnit.NANOSECONDS.toMicros(maxNanos) + " us";
+    }
+}
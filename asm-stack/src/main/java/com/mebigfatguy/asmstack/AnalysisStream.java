@@ -0,0 +1,190 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * the machinery behind {@link ParallelAnalyzer#stream(ClassSource)}. A reader thread reads classes from the source
+ * and hands each to the worker pool, but only while fewer than the allowed number of classes are in flight, that
+ * is read and not yet consumed; a class stops being in flight once the consumer has taken its results. A slow
+ * consumer therefore stalls the reader rather than letting results pile up.
+ * <p>
+ * Any failure, errors included, is queued for the consumer and rethrown from the stream. A stream dropped without
+ * being closed is noticed by the stalled reader once the stream has been collected, and closed then.
+ */
+final class AnalysisStream {
+
+    private static final long ABANDONED_CHECK_MILLIS = 250;
+
+    private final Function<byte[], List<MethodResult>> analysis;
+    private final ClassSource source;
+    private final ForkJoinPool pool;
+    private final Semaphore inFlight;
+    private final BlockingQueue<Object> completed = new LinkedBlockingQueue<>();
+    private final Thread reader;
+    private WeakReference<Object> consumerSide;
+    private volatile boolean closed;
+    private long submitted = -1;
+    private long received;
+    private Iterator<MethodResult> current = Collections.emptyIterator();
+
+    private AnalysisStream(Function<byte[], List<MethodResult>> analysis, ClassSource source, int parallelism, int maxInFlight) {
+        this.analysis = analysis;
+        this.source = source;
+        pool = new ForkJoinPool(parallelism);
+        inFlight = new Semaphore(maxInFlight);
+        reader = new Thread(this::readClasses, "asm-stack reader of " + source);
+        reader.setDaemon(true);
+    }
+
+    static Stream<MethodResult> open(Function<byte[], List<MethodResult>> classAnalysis, ClassSource source, int parallelism, int maxInFlight) {
+        AnalysisStream analysis = new AnalysisStream(classAnalysis, source, parallelism, maxInFlight);
+        Spliterator<MethodResult> spliterator = new Spliterators.AbstractSpliterator<MethodResult>(Long.MAX_VALUE,
+                Spliterator.NONNULL | Spliterator.IMMUTABLE) {
+            @Override
+            public boolean tryAdvance(Consumer<? super MethodResult> action) {
+                return analysis.tryAdvance(action);
+            }
+        };
+        // only the stream holds the spliterator, so once it is cleared the stream can't be closed anymore
+        analysis.consumerSide = new WeakReference<>(spliterator);
+        analysis.reader.start();
+        return StreamSupport.stream(spliterator, false).onClose(analysis::close);
+    }
+
+    private void readClasses() {
+        try {
+            CountingConsumer submitter = new CountingConsumer();
+            source.read(submitter);
+            completed.add(Long.valueOf(submitter.count));
+        } catch (IOException e) {
+            completed.add(new UncheckedIOException("Failed reading classes from " + source, e));
+        } catch (Throwable t) {
+            if (!closed) {
+                completed.add(t);
+            }
+        }
+    }
+
+    private boolean tryAdvance(Consumer<? super MethodResult> action) {
+        while (!current.hasNext()) {
+            if (received == submitted) {
+                close();
+                return false;
+            }
+
+            Object next = take();
+            if (next instanceof List) {
+                @SuppressWarnings("unchecked")
+                List<MethodResult> results = (List<MethodResult>) next;
+                received++;
+                inFlight.release();
+                current = results.iterator();
+            } else if (next instanceof Long) {
+                submitted = ((Long) next).longValue();
+            } else if (next instanceof Throwable) {
+                close();
+                throw rethrown((Throwable) next);
+            }
+        }
+
+        action.accept(current.next());
+        return true;
+    }
+
+    private static RuntimeException rethrown(Throwable t) {
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        if (t instanceof IOException) {
+            return new UncheckedIOException((IOException) t);
+        }
+        return new IllegalStateException("Failed analyzing classes", t);
+    }
+
+    private Object take() {
+        try {
+            return completed.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new IllegalStateException("Interrupted while waiting for analysis results", e);
+        }
+    }
+
+    private void close() {
+        if (!closed) {
+            closed = true;
+            reader.interrupt();
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * submits each class read to the pool once a slot is free, counting them
+     */
+    private final class CountingConsumer implements Consumer<byte[]> {
+
+        long count;
+
+        @Override
+        public void accept(byte[] classBytes) {
+            try {
+                while (!inFlight.tryAcquire(ABANDONED_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (consumerSide.get() == null) {
+                        close();
+                    }
+                    if (closed) {
+                        throw new IllegalStateException("Reading classes was cancelled");
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw new IllegalStateException("Reading classes was cancelled", e);
+            }
+
+            count++;
+            pool.execute(() -> {
+                try {
+                    completed.add(analysis.apply(classBytes));
+                } catch (Throwable t) {
+                    completed.add(t);
+                }
+            });
+        }
+    }
+}
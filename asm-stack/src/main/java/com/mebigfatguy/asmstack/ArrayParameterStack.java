@@ -0,0 +1,268 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.util.Arrays;
+
+/**
+ * a parameter stack held as parallel arrays of type codes, constant values and field references, where a
+ * {@link Parameter} is only looked up, or built, when an entry is asked for by peek or pop. Snapshots copy the arrays.
+ */
+public class ArrayParameterStack extends ParameterStack {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] types = new int[INITIAL_CAPACITY];
+    private byte[] valueKinds = new byte[INITIAL_CAPACITY];
+    private long[] primitiveValues = new long[INITIAL_CAPACITY];
+    private Object[] objectValues = new Object[INITIAL_CAPACITY];
+    private Field[] fields = new Field[INITIAL_CAPACITY];
+    private int size;
+
+    @Override
+    void push(int type) {
+        claim(type, NO_VALUE);
+    }
+
+    @Override
+    void pushInt(int type, int value) {
+        int index = claim(type, PRIMITIVE_VALUE);
+        primitiveValues[index] = value;
+    }
+
+    @Override
+    void pushLong(long value) {
+        int index = claim(Types.LONG, PRIMITIVE_VALUE);
+        primitiveValues[index] = value;
+    }
+
+    @Override
+    void pushFloat(float value) {
+        int index = claim(Types.FLOAT, PRIMITIVE_VALUE);
+        primitiveValues[index] = Float.floatToRawIntBits(value);
+    }
+
+    @Override
+    void pushDouble(double value) {
+        int index = claim(Types.DOUBLE, PRIMITIVE_VALUE);
+        primitiveValues[index] = Double.doubleToRawLongBits(value);
+    }
+
+    @Override
+    void pushConstant(int type, Object value) {
+        int index = claim(type, OBJECT_VALUE);
+        objectValues[index] = value;
+    }
+
+    @Override
+    void pushField(int type, Field field) {
+        int index = claim(type, NO_VALUE);
+        fields[index] = field;
+    }
+
+    @Override
+    void pushEntry(int type, byte valueKind, long primitiveValue, Object objectValue, Field field) {
+        int index = claim(type, valueKind);
+        primitiveValues[index] = primitiveValue;
+        objectValues[index] = objectValue;
+        fields[index] = field;
+    }
+
+    @Override
+    public Parameter pop() {
+        Parameter p = materialize(size - 1);
+        size--;
+        return p;
+    }
+
+    @Override
+    public void pop(int numItems) {
+        if (numItems > size) {
+            throw new IndexOutOfBoundsException("Popping " + numItems + " items from a stack of " + size);
+        }
+        size -= numItems;
+    }
+
+    @Override
+    public Parameter peek(int offset) {
+        return materialize(size - offset - 1);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    int typeAt(int offset) {
+        return types[size - offset - 1];
+    }
+
+    @Override
+    void retype(int offset, int type) {
+        int index = size - offset - 1;
+        types[index] = type;
+    }
+
+    @Override
+    void replace(int offset, int type) {
+        int index = size - offset - 1;
+        types[index] = type;
+        valueKinds[index] = NO_VALUE;
+        objectValues[index] = null;
+        fields[index] = null;
+    }
+
+    @Override
+    void dupX(int count, int depth) {
+        ensureCapacity(size + count);
+        int insertAt = size - count - depth;
+        move(insertAt, insertAt + count, count + depth);
+        move(size, insertAt, count);
+        size += count;
+    }
+
+    @Override
+    void swap() {
+        ensureCapacity(size + 1);
+        move(size - 2, size, 1);
+        move(size - 1, size - 2, 1);
+        move(size, size - 1, 1);
+    }
+
+    @Override
+    Snapshot snapshot() {
+        if (size == 0) {
+            return ArraySnapshot.EMPTY;
+        }
+
+        return new ArraySnapshot(Arrays.copyOf(types, size), Arrays.copyOf(valueKinds, size), Arrays.copyOf(primitiveValues, size),
+                Arrays.copyOf(objectValues, size), Arrays.copyOf(fields, size));
+    }
+
+    @Override
+    void restore(Snapshot stackSnapshot) {
+        clear();
+        if (!(stackSnapshot instanceof ArraySnapshot)) {
+            stackSnapshot.pushInto(this);
+            return;
+        }
+
+        ArraySnapshot snapshot = (ArraySnapshot) stackSnapshot;
+        int snapshotSize = snapshot.types.length;
+        ensureCapacity(snapshotSize);
+        System.arraycopy(snapshot.types, 0, types, 0, snapshotSize);
+        System.arraycopy(snapshot.valueKinds, 0, valueKinds, 0, snapshotSize);
+        System.arraycopy(snapshot.primitiveValues, 0, primitiveValues, 0, snapshotSize);
+        System.arraycopy(snapshot.objectValues, 0, objectValues, 0, snapshotSize);
+        System.arraycopy(snapshot.fields, 0, fields, 0, snapshotSize);
+        size = snapshotSize;
+    }
+
+    @Override
+    void clear() {
+        Arrays.fill(objectValues, 0, size, null);
+        Arrays.fill(fields, 0, size, null);
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(Types.signature(types[i]));
+        }
+        return sb.append(']').toString();
+    }
+
+    private int claim(int type, byte valueKind) {
+        ensureCapacity(size + 1);
+        int index = size++;
+        types[index] = type;
+        valueKinds[index] = valueKind;
+        objectValues[index] = null;
+        fields[index] = null;
+        return index;
+    }
+
+    private Parameter materialize(int index) {
+        if ((index < 0) || (index >= size)) {
+            throw new IndexOutOfBoundsException("Stack index " + index + " is out of bounds for a stack of " + size);
+        }
+
+        return Parameter.of(types[index], valueKinds[index], primitiveValues[index], objectValues[index], fields[index]);
+    }
+
+    private void move(int from, int to, int length) {
+        System.arraycopy(types, from, types, to, length);
+        System.arraycopy(valueKinds, from, valueKinds, to, length);
+        System.arraycopy(primitiveValues, from, primitiveValues, to, length);
+        System.arraycopy(objectValues, from, objectValues, to, length);
+        System.arraycopy(fields, from, fields, to, length);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= types.length) {
+            return;
+        }
+
+        int newCapacity = Math.max(capacity, types.length * 2);
+        types = Arrays.copyOf(types, newCapacity);
+        valueKinds = Arrays.copyOf(valueKinds, newCapacity);
+        primitiveValues = Arrays.copyOf(primitiveValues, newCapacity);
+        objectValues = Arrays.copyOf(objectValues, newCapacity);
+        fields = Arrays.copyOf(fields, newCapacity);
+    }
+
+    /**
+     * an immutable copy of the stack entries at one program point
+     */
+    static final class ArraySnapshot implements Snapshot {
+
+        static final ArraySnapshot EMPTY = new ArraySnapshot(new int[0], new byte[0], new long[0], new Object[0], new Field[0]);
+
+        private final int[] types;
+        private final byte[] valueKinds;
+        private final long[] primitiveValues;
+        private final Object[] objectValues;
+        private final Field[] fields;
+
+        private ArraySnapshot(int[] types, byte[] valueKinds, long[] primitiveValues, Object[] objectValues, Field[] fields) {
+            this.types = types;
+            this.valueKinds = valueKinds;
+            this.primitiveValues = primitiveValues;
+            this.objectValues = objectValues;
+            this.fields = fields;
+        }
+
+        @Override
+        public int size() {
+            return types.length;
+        }
+
+        @Override
+        public void pushInto(ParameterStack stack) {
+            for (int i = 0; i < types.length; i++) {
+                stack.pushEntry(types[i], valueKinds[i], primitiveValues[i], objectValues[i], fields[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import org.objectweb.asm.Opcodes;
+
+/**
+ * an invoke instruction, with its receiver and arguments as they sit on the stack just before they are popped.
+ * Nothing is copied: arguments are read from the stack when asked for, by their position in the method's parameter
+ * list. One call site is reused for every invoke a visitor sees, so it is only valid during
+ * {@link ParameterStackMethodVisitor#visitCallSite(CallSite)}.
+ */
+public final class CallSite {
+
+    private final ParameterStack stack;
+    private int opcode;
+    private String owner;
+    private String name;
+    private MethodDescriptor methodDescriptor;
+
+    CallSite(ParameterStack stack) {
+        this.stack = stack;
+    }
+
+    void set(int invokeOpcode, String ownerName, String methodName, MethodDescriptor md) {
+        opcode = invokeOpcode;
+        owner = ownerName;
+        name = methodName;
+        methodDescriptor = md;
+    }
+
+    /**
+     * @return one of INVOKEVIRTUAL, INVOKESPECIAL, INVOKESTATIC, INVOKEINTERFACE or INVOKEDYNAMIC
+     */
+    public int getOpcode() {
+        return opcode;
+    }
+
+    /**
+     * @return the internal name of the class owning the method, or null for INVOKEDYNAMIC
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescriptor() {
+        return methodDescriptor.getDescriptor();
+    }
+
+    public MethodDescriptor getMethodDescriptor() {
+        return methodDescriptor;
+    }
+
+    public boolean hasReceiver() {
+        return (opcode != Opcodes.INVOKESTATIC) && (opcode != Opcodes.INVOKEDYNAMIC);
+    }
+
+    /**
+     * @return the object the method is invoked on, or null for static and dynamic invocations
+     */
+    public Parameter getReceiver() {
+        return hasReceiver() ? stack.peek(methodDescriptor.getArgumentCount()) : null;
+    }
+
+    public int getArgumentCount() {
+        return methodDescriptor.getArgumentCount();
+    }
+
+    /**
+     * @param index the position of the argument in the method's parameter list
+     * @return the argument as simulated on the stack
+     */
+    public Parameter getArgument(int index) {
+        int count = methodDescriptor.getArgumentCount();
+        if ((index < 0) || (index >= count)) {
+            throw new IndexOutOfBoundsException("Argument " + index + " is out of bounds for a method of " + count + " arguments");
+        }
+        return stack.peek(count - index - 1);
+    }
+
+    /**
+     * @param index the position of the argument in the method's parameter list
+     * @return the type the method declares, which may be wider than the simulated type of the argument
+     */
+    public TypeDescriptor getArgumentType(int index) {
+        return methodDescriptor.getArgumentType(index);
+    }
+
+    @Override
+    public String toString() {
+        return ((owner == null) ? "" : owner + '.') + name + methodDescriptor.getDescriptor();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+/**
+ * what a {@link ParameterStackClassVisitor} learned about one invoke instruction: the method called, and which of
+ * its arguments were constants at the call, as far as the mode simulated values
+ */
+public final class CallSiteResult {
+
+    private final int opcode;
+    private final String owner;
+    private final String name;
+    private final String descriptor;
+    private final long constantArguments;
+
+    public CallSiteResult(int opcode, String owner, String name, String descriptor, long constantArguments) {
+        this.opcode = opcode;
+        this.owner = owner;
+        this.name = name;
+        this.descriptor = descriptor;
+        this.constantArguments = constantArguments;
+    }
+
+    public int getOpcode() {
+        return opcode;
+    }
+
+    /**
+     * @return the internal name of the class owning the method, or null for INVOKEDYNAMIC
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescriptor() {
+        return descriptor;
+    }
+
+    /**
+     * @return a bit for each of the first 64 arguments, set when the argument was a known constant
+     */
+    public long getConstantArguments() {
+        return constantArguments;
+    }
+
+    public boolean isConstantArgument(int index) {
+        return (index < 64) && ((constantArguments & (1L << index)) != 0);
+    }
+
+    @Override
+    public int hashCode() {
+        return (name.hashCode() * 31) + descriptor.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CallSiteResult)) {
+            return false;
+        }
+
+        CallSiteResult that = (CallSiteResult) o;
+        return (opcode == that.opcode) && ((owner == null) ? (that.owner == null) : owner.equals(that.owner)) && name.equals(that.name)
+                && descriptor.equals(that.descriptor) && (constantArguments == that.constantArguments);
+    }
+
+    @Override
+    public String toString() {
+        return ((owner == null) ? "" : owner + '.') + name + descriptor + " [constants=" + Long.toBinaryString(constantArguments) + ']';
+    }
+}
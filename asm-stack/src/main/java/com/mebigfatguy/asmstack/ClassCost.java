@@ -0,0 +1,76 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import org.objectweb.asm.ClassReader;
+
+/**
+ * estimates how long a class will take to analyze from its class file alone, without visiting it, so that parallel
+ * scans can start the most expensive classes first. The estimate is the length of the bytecode of all methods, plus
+ * a fixed charge per method for setting up its visitor.
+ */
+final class ClassCost {
+
+    /**
+     * the cost of visiting a method, beyond its instructions, in bytes of code
+     */
+    private static final int METHOD_COST = 32;
+
+    private ClassCost() {
+    }
+
+    static long estimate(byte[] classBytes) {
+        ClassReader reader = new ClassReader(classBytes);
+        char[] buffer = new char[reader.getMaxStringLength()];
+
+        int offset = reader.header + 6;
+        offset += 2 + (2 * reader.readUnsignedShort(offset));
+
+        int fieldCount = reader.readUnsignedShort(offset);
+        offset += 2;
+        for (int i = 0; i < fieldCount; i++) {
+            offset = skipAttributes(reader, offset + 6);
+        }
+
+        int methodCount = reader.readUnsignedShort(offset);
+        offset += 2;
+        long cost = (long) methodCount * METHOD_COST;
+        for (int i = 0; i < methodCount; i++) {
+            int attributeCount = reader.readUnsignedShort(offset + 6);
+            offset += 8;
+            for (int a = 0; a < attributeCount; a++) {
+                int length = reader.readInt(offset + 2);
+                if ("Code".equals(reader.readUTF8(offset, buffer))) {
+                    // the code length, after max stack and max locals
+                    cost += reader.readInt(offset + 10);
+                }
+                offset += 6 + length;
+            }
+        }
+        return cost;
+    }
+
+    private static int skipAttributes(ClassReader reader, int offset) {
+        int attributeCount = reader.readUnsignedShort(offset);
+        offset += 2;
+        for (int a = 0; a < attributeCount; a++) {
+            offset += 6 + reader.readInt(offset + 2);
+        }
+        return offset;
+    }
+}
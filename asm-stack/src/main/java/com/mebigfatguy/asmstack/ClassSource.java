@@ -0,0 +1,65 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * somewhere to read class files from, such as a jar, a directory of classes, or the JDK's runtime image, for the
+ * analysis drivers
+ */
+public interface ClassSource {
+
+    /**
+     * reads every class file of the source, in a stable order, handing each to the consumer on the calling thread
+     *
+     * @param classConsumer receives the bytes of each class file
+     * @throws IOException if the source can't be read
+     */
+    void read(Consumer<byte[]> classConsumer) throws IOException;
+
+    /**
+     * @param path a jar file, or a directory holding class files in package directories
+     * @return a source reading the classes of the jar or directory
+     */
+    static ClassSource of(Path path) {
+        return Files.isDirectory(path) ? new DirectoryClassSource(path) : new MappedJarClassSource(path);
+    }
+
+    /**
+     * @param modules the names of the modules to read, such as java.base, or none to read every module
+     * @return a source reading the classes of the running JDK's runtime image, through the jrt:/ file system
+     *         of java 9 and later
+     */
+    static ClassSource jrt(String... modules) {
+        return new JrtClassSource(Arrays.asList(modules));
+    }
+
+    /**
+     * @return the names of the modules of the running JDK's runtime image
+     * @throws IOException if there is no runtime image, as on java 8
+     */
+    static List<String> jrtModules() throws IOException {
+        return JrtClassSource.availableModules();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+/**
+ * a parameter holding a constant value, where the small int, long, float and double constants pushed by
+ * the xCONST, BIPUSH and SIPUSH instructions are shared instances
+ */
+final class ConstantParameter extends Parameter {
+
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 127;
+    private static final int[] CACHED_INT_TYPES = { Types.INT, Types.BYTE, Types.CHAR, Types.SHORT, Types.BOOLEAN };
+
+    private static final ConstantParameter[][] INTS = new ConstantParameter[Types.BOOLEAN + 1][];
+    private static final ConstantParameter[] LONGS = { new ConstantParameter(Types.descriptor(Types.LONG), Long.valueOf(0L)),
+            new ConstantParameter(Types.descriptor(Types.LONG), Long.valueOf(1L)) };
+    private static final ConstantParameter[] FLOATS = { new ConstantParameter(Types.descriptor(Types.FLOAT), Float.valueOf(0.0f)),
+            new ConstantParameter(Types.descriptor(Types.FLOAT), Float.valueOf(1.0f)),
+            new ConstantParameter(Types.descriptor(Types.FLOAT), Float.valueOf(2.0f)) };
+    private static final ConstantParameter[] DOUBLES = { new ConstantParameter(Types.descriptor(Types.DOUBLE), Double.valueOf(0.0)),
+            new ConstantParameter(Types.descriptor(Types.DOUBLE), Double.valueOf(1.0)) };
+
+    static {
+        for (int type : CACHED_INT_TYPES) {
+            ConstantParameter[] values = new ConstantParameter[CACHE_HIGH - CACHE_LOW + 1];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = new ConstantParameter(Types.descriptor(type), Integer.valueOf(i + CACHE_LOW));
+            }
+            INTS[type] = values;
+        }
+    }
+
+    private final Object value;
+
+    ConstantParameter(TypeDescriptor t, Object cons) {
+        super(t);
+        value = cons;
+    }
+
+    /**
+     * returns the parameter for a primitive constant, as held by the stacks
+     */
+    static ConstantParameter primitive(int type, long bits) {
+        switch (type) {
+            case Types.LONG:
+                if ((bits == 0L) || (bits == 1L)) {
+                    return LONGS[(int) bits];
+                }
+                return new ConstantParameter(Types.descriptor(type), Long.valueOf(bits));
+
+            case Types.FLOAT:
+                float f = Float.intBitsToFloat((int) bits);
+                if (((int) bits == Float.floatToRawIntBits(0.0f)) || (f == 1.0f) || (f == 2.0f)) {
+                    return FLOATS[(int) f];
+                }
+                return new ConstantParameter(Types.descriptor(type), Float.valueOf(f));
+
+            case Types.DOUBLE:
+                double d = Double.longBitsToDouble(bits);
+                if ((bits == Double.doubleToRawLongBits(0.0)) || (d == 1.0)) {
+                    return DOUBLES[(int) d];
+                }
+                return new ConstantParameter(Types.descriptor(type), Double.valueOf(d));
+
+            default:
+                int value = (int) bits;
+                if ((type < INTS.length) && (INTS[type] != null) && (value >= CACHE_LOW) && (value <= CACHE_HIGH)) {
+                    return INTS[type][value - CACHE_LOW];
+                }
+                return new ConstantParameter(Types.descriptor(type), Integer.valueOf(value));
+        }
+    }
+
+    @Override
+    Parameter withType(TypeDescriptor t) {
+        return new ConstantParameter(t, value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getValue() {
+        return (T) value;
+    }
+
+    @Override
+    public String toString() {
+        return getType() + "=" + value;
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.util.Arrays;
+
+/**
+ * the lightest parameter stack, that only counts its entries, for checks that just need the stack depth, such as
+ * at a call site. Alongside the count, one bit per entry records whether it is a long or double, so that POP2 and
+ * the DUP2 forms still remove and copy the right number of entries. Entries report their category only: peek and
+ * pop hand out long for wide entries, and an unknown type for all others.
+ */
+public class DepthParameterStack extends ParameterStack {
+
+    private long[] wide = new long[1];
+    private int size;
+
+    @Override
+    void push(int type) {
+        claim(Types.isWide(type));
+    }
+
+    @Override
+    void pushInt(int type, int value) {
+        claim(false);
+    }
+
+    @Override
+    void pushLong(long value) {
+        claim(true);
+    }
+
+    @Override
+    void pushFloat(float value) {
+        claim(false);
+    }
+
+    @Override
+    void pushDouble(double value) {
+        claim(true);
+    }
+
+    @Override
+    void pushConstant(int type, Object value) {
+        claim(Types.isWide(type));
+    }
+
+    @Override
+    void pushField(int type, Field field) {
+        claim(Types.isWide(type));
+    }
+
+    @Override
+    void pushEntry(int type, byte valueKind, long primitiveValue, Object objectValue, Field field) {
+        claim(Types.isWide(type));
+    }
+
+    @Override
+    public Parameter pop() {
+        Parameter p = peek(0);
+        size--;
+        return p;
+    }
+
+    @Override
+    public void pop(int numItems) {
+        if (numItems > size) {
+            throw new IndexOutOfBoundsException("Popping " + numItems + " items from a stack of " + size);
+        }
+        size -= numItems;
+    }
+
+    @Override
+    public Parameter peek(int offset) {
+        return Types.descriptor(typeAt(offset)).getParameter();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    int typeAt(int offset) {
+        if ((offset < 0) || (offset >= size)) {
+            throw new IndexOutOfBoundsException("Stack offset " + offset + " is out of bounds for a stack of " + size);
+        }
+        return isWide(size - offset - 1) ? Types.LONG : Types.UNKNOWN;
+    }
+
+    @Override
+    void retype(int offset, int type) {
+        setWide(size - offset - 1, Types.isWide(type));
+    }
+
+    @Override
+    void replace(int offset, int type) {
+        setWide(size - offset - 1, Types.isWide(type));
+    }
+
+    @Override
+    void dupX(int count, int depth) {
+        ensureCapacity(size + count);
+        int insertAt = size - count - depth;
+        for (int i = size - 1; i >= insertAt; i--) {
+            setWide(i + count, isWide(i));
+        }
+        for (int i = 0; i < count; i++) {
+            setWide(insertAt + i, isWide(size + i));
+        }
+        size += count;
+    }
+
+    @Override
+    void swap() {
+        boolean top = isWide(size - 1);
+        setWide(size - 1, isWide(size - 2));
+        setWide(size - 2, top);
+    }
+
+    @Override
+    Snapshot snapshot() {
+        if (size == 0) {
+            return DepthSnapshot.EMPTY;
+        }
+        return new DepthSnapshot(size, Arrays.copyOf(wide, (size + 63) >>> 6));
+    }
+
+    @Override
+    void restore(Snapshot snapshot) {
+        clear();
+        if (snapshot instanceof DepthSnapshot) {
+            DepthSnapshot depthSnapshot = (DepthSnapshot) snapshot;
+            ensureCapacity(depthSnapshot.size);
+            System.arraycopy(depthSnapshot.wide, 0, wide, 0, depthSnapshot.wide.length);
+            size = depthSnapshot.size;
+        } else {
+            snapshot.pushInto(this);
+        }
+    }
+
+    @Override
+    void clear() {
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "[depth " + size + "]";
+    }
+
+    private void claim(boolean isWide) {
+        ensureCapacity(size + 1);
+        setWide(size++, isWide);
+    }
+
+    private boolean isWide(int index) {
+        return (wide[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private void setWide(int index, boolean isWide) {
+        if (isWide) {
+            wide[index >>> 6] |= 1L << index;
+        } else {
+            wide[index >>> 6] &= ~(1L << index);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        int words = (capacity + 63) >>> 6;
+        if (words > wide.length) {
+            wide = Arrays.copyOf(wide, Math.max(words, wide.length * 2));
+        }
+    }
+
+    /**
+     * an immutable copy of the depth, and the categories of the entries, at one program point
+     */
+    static final class DepthSnapshot implements Snapshot {
+
+        static final DepthSnapshot EMPTY = new DepthSnapshot(0, new long[0]);
+
+        private final int size;
+        private final long[] wide;
+
+        private DepthSnapshot(int size, long[] wide) {
+            this.size = size;
+            this.wide = wide;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void pushInto(ParameterStack stack) {
+            for (int i = 0; i < size; i++) {
+                boolean isWide = (wide[i >>> 6] & (1L << i)) != 0;
+                stack.pushEntry(isWide ? Types.LONG : Types.UNKNOWN, NO_VALUE, 0, null, null);
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * reads the class files under a directory, such as a build's output directory, in path order
+ */
+class DirectoryClassSource implements ClassSource {
+
+    private final Path root;
+
+    DirectoryClassSource(Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public void read(Consumer<byte[]> classConsumer) throws IOException {
+        for (Path path : classFiles()) {
+            classConsumer.accept(Files.readAllBytes(path));
+        }
+    }
+
+    List<Path> classFiles() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(p -> JarClassSource.isClass(root.relativize(p).toString().replace('\\', '/')) && Files.isRegularFile(p))
+                    .sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return root.toString();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+/**
+ * a field read by GETFIELD or GETSTATIC. Fields read by the visitors are interned by {@link FieldTable}, so
+ * they can be compared by identity, while equals still holds for fields built directly.
+ */
+public class Field {
+    private final String owner;
+    private final String name;
+    private final String descriptor;
+    private final int hash;
+    private final int type;
+
+    public Field(String owner, String name, String descriptor) {
+        this.owner = owner;
+        this.name = name;
+        this.descriptor = descriptor;
+        hash = hash(owner, name, descriptor);
+        type = Types.intern(descriptor);
+    }
+
+    static int hash(String owner, String name, String descriptor) {
+        return (((owner.hashCode() * 31) + name.hashCode()) * 31) + descriptor.hashCode();
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescriptor() {
+        return descriptor;
+    }
+
+    int getType() {
+        return type;
+    }
+
+    boolean matches(String fieldOwner, String fieldName, String fieldDescriptor) {
+        return ((owner == fieldOwner) || owner.equals(fieldOwner)) && ((name == fieldName) || name.equals(fieldName))
+                && ((descriptor == fieldDescriptor) || descriptor.equals(fieldDescriptor));
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Field)) {
+            return false;
+        }
+
+        Field that = (Field) o;
+        return (hash == that.hash) && matches(that.owner, that.name, that.descriptor);
+    }
+
+    @Override
+    public String toString() {
+        return owner + '.' + name + ':' + descriptor;
+    }
+}
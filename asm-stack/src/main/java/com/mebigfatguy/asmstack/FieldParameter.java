@@ -17,38 +17,35 @@
  */
 package com.mebigfatguy.asmstack;
 
-import java.util.ArrayList;
-import java.util.List;
-
-public class ParameterStack {
-
-    private List<Parameter> stack = new ArrayList<>();
+/**
+ * a parameter whose value was loaded from a field
+ */
+final class FieldParameter extends Parameter {
 
-    void push(Parameter p) {
-        stack.add(p);
-    }
+    private final Field field;
 
-    public Parameter pop() {
-        return stack.remove(stack.size() - 1);
+    FieldParameter(TypeDescriptor t, Field fld) {
+        super(t);
+        field = fld;
     }
 
-    public void pop(int numItems) {
-
-        while (numItems-- > 0) {
-            stack.remove(stack.size() - 1);
-        }
+    @Override
+    Parameter withType(TypeDescriptor t) {
+        return new FieldParameter(t, field);
     }
 
-    public Parameter peek(int offset) {
-        return stack.get(stack.size() - offset - 1);
+    @Override
+    public Field getField() {
+        return field;
     }
 
-    public boolean isEmpty() {
-        return stack.isEmpty();
+    @Override
+    public Parameter withValue(Object o) {
+        return (o == null) ? this : super.withValue(o);
     }
 
+    @Override
     public String toString() {
-        return stack.toString();
+        return getType() + "=" + field.getOwner() + '.' + field.getName();
     }
-
 }
@@ -0,0 +1,98 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * a bounded interning table of the fields read by GETFIELD and GETSTATIC, shared by all threads, so that repeated
+ * reads of a field share one instance. The fields are held in a concurrent map, which decides the one instance of
+ * each, fronted by a lock free, direct mapped array of recently read fields, like {@link MethodDescriptorCache}, so
+ * that hits need no key to be built. The array only ever holds instances from the map, so a colliding field there
+ * costs a map lookup, never a second instance. Once the map reaches {@link #MAX_FIELDS} the table starts over
+ * empty, and only then can a field read again be a different instance from one read before.
+ */
+public final class FieldTable {
+
+    /**
+     * how many fields are held before the table is cleared
+     */
+    public static final int MAX_FIELDS = 1 << 16;
+
+    private static final int RECENT_SIZE = 1 << 13;
+    private static final int RECENT_MASK = RECENT_SIZE - 1;
+
+    private static volatile Generation generation = new Generation();
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+
+    private FieldTable() {
+    }
+
+    public static Field intern(String owner, String name, String descriptor) {
+        Generation g = generation;
+        int hash = Field.hash(owner, name, descriptor);
+        int index = (hash ^ (hash >>> 16)) & RECENT_MASK;
+
+        Field field = g.recent.get(index);
+        if ((field != null) && (field.hashCode() == hash) && field.matches(owner, name, descriptor)) {
+            hits.increment();
+            return field;
+        }
+
+        Field key = new Field(owner, name, descriptor);
+        field = g.fields.putIfAbsent(key, key);
+        if (field == null) {
+            misses.increment();
+            field = key;
+            if (g.fields.size() >= MAX_FIELDS) {
+                clear();
+            }
+        } else {
+            hits.increment();
+        }
+        g.recent.lazySet(index, field);
+        return field;
+    }
+
+    /**
+     * starts the table over empty, as it does by itself once full
+     */
+    static void clear() {
+        generation = new Generation();
+    }
+
+    public static long getHits() {
+        return hits.sum();
+    }
+
+    public static long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * the fields interned since the table was last cleared, replaced as a whole so that no field from before the
+     * clearing can reach the recent array of the one after
+     */
+    private static final class Generation {
+        final ConcurrentHashMap<Field, Field> fields = new ConcurrentHashMap<>();
+        final AtomicReferenceArray<Field> recent = new AtomicReferenceArray<>(RECENT_SIZE);
+    }
+}
@@ -17,26 +17,27 @@
  */
 package com.mebigfatguy.asmstack;
 
-public class Field {
-    private String owner;
-    private String name;
-    private String descriptor;
+import java.io.IOException;
 
-    public Field(String owner, String name, String descriptor) {
-        this.owner = owner;
-        this.name = name;
-        this.descriptor = descriptor;
-    }
+/**
+ * a class source whose classes can be read one at a time, by index, on any thread, so that parallel drivers can
+ * read classes on their workers rather than on one thread up front
+ */
+interface IndexedClassSource extends ClassSource {
+
+    /**
+     * readies the source for reading by index, if not yet done
+     *
+     * @return false if the source can't be read by index, and must be read with {@link #read}
+     */
+    boolean open() throws IOException;
 
-    public String getOwner() {
-        return owner;
-    }
+    int getClassCount();
 
-    public String getName() {
-        return name;
-    }
+    /**
+     * @return the size of a class file, known without reading it, as an estimate of its cost
+     */
+    long getClassSize(int index);
 
-    public String getDescriptor() {
-        return descriptor;
-    }
+    byte[] readClass(int index) throws IOException;
 }
@@ -0,0 +1,73 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * reads the class files of a jar, in the order they are stored, skipping module-info and multi-release versions
+ */
+class JarClassSource implements ClassSource {
+
+    private final Path jar;
+
+    JarClassSource(Path jar) {
+        this.jar = jar;
+    }
+
+    @Override
+    public void read(Consumer<byte[]> classConsumer) throws IOException {
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            byte[] buffer = new byte[8192];
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (isClass(entry.getName())) {
+                    try (InputStream is = zip.getInputStream(entry)) {
+                        classConsumer.accept(read(is, entry.getSize(), buffer));
+                    }
+                }
+            }
+        }
+    }
+
+    static boolean isClass(String name) {
+        return name.endsWith(".class") && !name.endsWith("module-info.class") && !name.startsWith("META-INF/");
+    }
+
+    private static byte[] read(InputStream is, long size, byte[] buffer) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream((size > 0) ? (int) size : buffer.length);
+        int len;
+        while ((len = is.read(buffer)) >= 0) {
+            baos.write(buffer, 0, len);
+        }
+        return baos.toByteArray();
+    }
+
+    @Override
+    public String toString() {
+        return jar.toString();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.ProviderNotFoundException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * reads the classes of the running JDK's runtime image through the jrt:/ file system, as found on java 9 and
+ * later, so the JDK can be analyzed without extracting it first. Classes are read module by module, in name order,
+ * optionally from only some modules. The class list is built once, after which any thread may read any class, so
+ * parallel drivers read each module's classes on their workers, scheduling the classes of all the modules as one
+ * pool of work, rather than leaving the largest module to finish last.
+ */
+class JrtClassSource implements IndexedClassSource {
+
+    private static final URI JRT = URI.create("jrt:/");
+
+    private final Set<String> modules;
+    private volatile Path[] classFiles;
+    private long[] sizes;
+
+    /**
+     * @param modules the names of the modules to read, or empty to read them all
+     */
+    JrtClassSource(Collection<String> modules) {
+        this.modules = Collections.unmodifiableSet(new TreeSet<>(modules));
+    }
+
+    /**
+     * @return the names of the modules of the runtime image, in name order
+     * @throws IOException if there is no runtime image, as on java 8
+     */
+    static List<String> availableModules() throws IOException {
+        try (DirectoryStream<Path> moduleDirs = Files.newDirectoryStream(fileSystem().getPath("/modules"))) {
+            List<String> names = new ArrayList<>();
+            for (Path moduleDir : moduleDirs) {
+                names.add(moduleDir.getFileName().toString());
+            }
+            Collections.sort(names);
+            return names;
+        }
+    }
+
+    @Override
+    public synchronized boolean open() throws IOException {
+        if (classFiles != null) {
+            return true;
+        }
+
+        List<String> available = availableModules();
+        List<String> selected = modules.isEmpty() ? available : available.stream().filter(modules::contains).collect(Collectors.toList());
+        if (selected.size() < modules.size()) {
+            Set<String> missing = new TreeSet<>(modules);
+            missing.removeAll(available);
+            throw new IOException("Modules " + missing + " are not in the runtime image");
+        }
+
+        FileSystem jrt = fileSystem();
+        List<Path> files = new ArrayList<>();
+        for (String module : selected) {
+            Path root = jrt.getPath("/modules", module);
+            try (Stream<Path> paths = Files.walk(root)) {
+                paths.filter(p -> JarClassSource.isClass(root.relativize(p).toString())).sorted().forEach(files::add);
+            }
+        }
+
+        long[] fileSizes = new long[files.size()];
+        for (int i = 0; i < fileSizes.length; i++) {
+            fileSizes[i] = Files.size(files.get(i));
+        }
+        sizes = fileSizes;
+        classFiles = files.toArray(new Path[0]);
+        return true;
+    }
+
+    @Override
+    public void read(Consumer<byte[]> classConsumer) throws IOException {
+        open();
+        for (Path classFile : classFiles) {
+            classConsumer.accept(Files.readAllBytes(classFile));
+        }
+    }
+
+    @Override
+    public int getClassCount() {
+        return classFiles.length;
+    }
+
+    @Override
+    public long getClassSize(int index) {
+        return sizes[index];
+    }
+
+    @Override
+    public byte[] readClass(int index) throws IOException {
+        return Files.readAllBytes(classFiles[index]);
+    }
+
+    private static FileSystem fileSystem() throws IOException {
+        try {
+            return FileSystems.getFileSystem(JRT);
+        } catch (ProviderNotFoundException e) {
+            throw new IOException("There is no jrt:/ file system before java 9", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return modules.isEmpty() ? JRT.toString() : JRT + " " + modules;
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.util.Objects;
+
+/**
+ * a persistent parameter stack, held as an immutable linked list of entries that share their tails. Pushing and
+ * popping are O(1), and a snapshot is just the current head, so the stack can be kept at every label or every
+ * instruction for the cost of a reference.
+ */
+public class LinkedParameterStack extends ParameterStack {
+
+    private Node head = Node.EMPTY;
+
+    @Override
+    void push(int type) {
+        head = new Node(head, type, NO_VALUE, 0, null, null);
+    }
+
+    @Override
+    void pushInt(int type, int value) {
+        head = new Node(head, type, PRIMITIVE_VALUE, value, null, null);
+    }
+
+    @Override
+    void pushLong(long value) {
+        head = new Node(head, Types.LONG, PRIMITIVE_VALUE, value, null, null);
+    }
+
+    @Override
+    void pushFloat(float value) {
+        head = new Node(head, Types.FLOAT, PRIMITIVE_VALUE, Float.floatToRawIntBits(value), null, null);
+    }
+
+    @Override
+    void pushDouble(double value) {
+        head = new Node(head, Types.DOUBLE, PRIMITIVE_VALUE, Double.doubleToRawLongBits(value), null, null);
+    }
+
+    @Override
+    void pushConstant(int type, Object value) {
+        head = new Node(head, type, OBJECT_VALUE, 0, value, null);
+    }
+
+    @Override
+    void pushField(int type, Field field) {
+        head = new Node(head, type, NO_VALUE, 0, null, field);
+    }
+
+    @Override
+    void pushEntry(int type, byte valueKind, long primitiveValue, Object objectValue, Field field) {
+        head = new Node(head, type, valueKind, primitiveValue, objectValue, field);
+    }
+
+    @Override
+    public Parameter pop() {
+        Parameter p = node(0).materialize();
+        head = head.next;
+        return p;
+    }
+
+    @Override
+    public void pop(int numItems) {
+        if (numItems > head.depth) {
+            throw new IndexOutOfBoundsException("Popping " + numItems + " items from a stack of " + head.depth);
+        }
+
+        Node n = head;
+        while (numItems-- > 0) {
+            n = n.next;
+        }
+        head = n;
+    }
+
+    @Override
+    public Parameter peek(int offset) {
+        return node(offset).materialize();
+    }
+
+    @Override
+    public int size() {
+        return head.depth;
+    }
+
+    @Override
+    int typeAt(int offset) {
+        return node(offset).type;
+    }
+
+    @Override
+    void retype(int offset, int type) {
+        Node[] above = take(offset + 1);
+        Node n = above[offset];
+        head = new Node(head, type, n.valueKind, n.primitiveValue, n.objectValue, n.field);
+        for (int i = offset - 1; i >= 0; i--) {
+            relink(above[i]);
+        }
+    }
+
+    @Override
+    void replace(int offset, int type) {
+        Node[] above = take(offset + 1);
+        head = new Node(head, type, NO_VALUE, 0, null, null);
+        for (int i = offset - 1; i >= 0; i--) {
+            relink(above[i]);
+        }
+    }
+
+    @Override
+    void dupX(int count, int depth) {
+        Node[] top = take(count + depth);
+        for (int i = count - 1; i >= 0; i--) {
+            relink(top[i]);
+        }
+        for (int i = count + depth - 1; i >= 0; i--) {
+            relink(top[i]);
+        }
+    }
+
+    @Override
+    void swap() {
+        Node[] top = take(2);
+        relink(top[0]);
+        relink(top[1]);
+    }
+
+    @Override
+    Snapshot snapshot() {
+        return head;
+    }
+
+    @Override
+    void restore(Snapshot snapshot) {
+        if (snapshot instanceof Node) {
+            head = (Node) snapshot;
+        } else {
+            head = Node.EMPTY;
+            snapshot.pushInto(this);
+        }
+    }
+
+    /**
+     * joins the stack arriving at a program point along one more path with the stack already known there. Entries
+     * keep their constant value and field only when all paths agree, and differing types are widened by
+     * {@link Types#merge(int, int)}. Tails shared by both stacks are not walked, and the known stack is returned
+     * as is when it already covers the arriving one, so callers can test for a change by identity.
+     *
+     * @param knownSnapshot the stack known so far, taken from a linked stack
+     * @param arrivingSnapshot the stack along the new path, taken from a linked stack
+     * @return the joined stack
+     */
+    static Snapshot merge(Snapshot knownSnapshot, Snapshot arrivingSnapshot) {
+        Node known = (Node) knownSnapshot;
+        Node arriving = (Node) arrivingSnapshot;
+        if ((known == arriving) || (known.depth != arriving.depth)) {
+            return known;
+        }
+
+        Node[] knownAbove = new Node[known.depth];
+        Node[] arrivingAbove = new Node[known.depth];
+        int count = 0;
+        while (known != arriving) {
+            knownAbove[count] = known;
+            arrivingAbove[count++] = arriving;
+            known = known.next;
+            arriving = arriving.next;
+        }
+
+        Node merged = known;
+        for (int i = count - 1; i >= 0; i--) {
+            Node k = knownAbove[i];
+            Node a = arrivingAbove[i];
+            int type = Types.merge(k.type, a.type);
+            boolean sameValue = (k.valueKind == a.valueKind) && (k.primitiveValue == a.primitiveValue)
+                    && Objects.equals(k.objectValue, a.objectValue);
+            boolean sameField = Objects.equals(k.field, a.field);
+            if ((type == k.type) && (sameValue || (k.valueKind == NO_VALUE)) && (sameField || (k.field == null))) {
+                if (merged == k.next) {
+                    merged = k;
+                } else {
+                    merged = new Node(merged, k.type, k.valueKind, k.primitiveValue, k.objectValue, k.field);
+                }
+            } else {
+                merged = sameValue ? new Node(merged, type, k.valueKind, k.primitiveValue, k.objectValue, sameField ? k.field : null)
+                        : new Node(merged, type, NO_VALUE, 0, null, sameField ? k.field : null);
+            }
+        }
+        return merged;
+    }
+
+    @Override
+    void clear() {
+        head = Node.EMPTY;
+    }
+
+    @Override
+    public String toString() {
+        String[] sigs = new String[head.depth];
+        Node n = head;
+        for (int i = sigs.length - 1; i >= 0; i--) {
+            sigs[i] = Types.signature(n.type);
+            n = n.next;
+        }
+
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < sigs.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(sigs[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    private Node node(int offset) {
+        if ((offset < 0) || (offset >= head.depth)) {
+            throw new IndexOutOfBoundsException("Stack offset " + offset + " is out of bounds for a stack of " + head.depth);
+        }
+
+        Node n = head;
+        while (offset-- > 0) {
+            n = n.next;
+        }
+        return n;
+    }
+
+    /**
+     * removes the top count entries, returning them top first
+     */
+    private Node[] take(int count) {
+        if (count > head.depth) {
+            throw new IndexOutOfBoundsException("Taking " + count + " items from a stack of " + head.depth);
+        }
+
+        Node[] nodes = new Node[count];
+        for (int i = 0; i < count; i++) {
+            nodes[i] = head;
+            head = head.next;
+        }
+        return nodes;
+    }
+
+    /**
+     * pushes a copy of an entry onto the current head
+     */
+    private void relink(Node n) {
+        head = new Node(head, n.type, n.valueKind, n.primitiveValue, n.objectValue, n.field);
+    }
+
+    private static final class Node implements Snapshot {
+
+        static final Node EMPTY = new Node();
+
+        final Node next;
+        final int depth;
+        final int type;
+        final byte valueKind;
+        final long primitiveValue;
+        final Object objectValue;
+        final Field field;
+
+        private Node() {
+            next = null;
+            depth = 0;
+            type = Types.UNKNOWN;
+            valueKind = NO_VALUE;
+            primitiveValue = 0;
+            objectValue = null;
+            field = null;
+        }
+
+        Node(Node next, int type, byte valueKind, long primitiveValue, Object objectValue, Field field) {
+            this.next = next;
+            depth = next.depth + 1;
+            this.type = type;
+            this.valueKind = valueKind;
+            this.primitiveValue = primitiveValue;
+            this.objectValue = objectValue;
+            this.field = field;
+        }
+
+        @Override
+        public int size() {
+            return depth;
+        }
+
+        @Override
+        public void pushInto(ParameterStack stack) {
+            Node[] entries = new Node[depth];
+            Node n = this;
+            for (int i = depth - 1; i >= 0; i--) {
+                entries[i] = n;
+                n = n.next;
+            }
+            for (Node entry : entries) {
+                stack.pushEntry(entry.type, entry.valueKind, entry.primitiveValue, entry.objectValue, entry.field);
+            }
+        }
+
+        Parameter materialize() {
+            return Parameter.of(type, valueKind, primitiveValue, objectValue, field);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * reads the class files of a jar by memory mapping it, rather than through ZipFile's streams. The central directory
+ * is parsed once, after which any thread may read any class: a stored class is copied straight from the mapping
+ * into its array, and a deflated one is inflated straight into its array, by an inflater, and input buffer, kept per
+ * thread. Each class costs one array of exactly its size, which is what ClassReader then parses, with no stream
+ * buffers or growing copies in between. Jars over 2gb, or that need zip64 records, are read by {@link JarClassSource}
+ * instead.
+ */
+class MappedJarClassSource implements IndexedClassSource {
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int END_RECORD_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+
+    private static final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(() -> new Inflater(true));
+    private static final ThreadLocal<byte[]> inputBuffers = ThreadLocal.withInitial(() -> new byte[8192]);
+
+    private final Path jar;
+    private ByteBuffer mapping;
+    private int count;
+    private int[] methods;
+    private int[] dataOffsets;
+    private int[] compressedSizes;
+    private int[] sizes;
+
+    MappedJarClassSource(Path jar) {
+        this.jar = jar;
+    }
+
+    /**
+     * maps the jar and parses its central directory, if not yet done
+     *
+     * @return false if the jar can't be mapped, or needs zip64, and so must be read some other way
+     */
+    @Override
+    public synchronized boolean open() throws IOException {
+        if (mapping != null) {
+            return true;
+        }
+
+        try (FileChannel channel = FileChannel.open(jar, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return false;
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            return parseCentralDirectory(mapped);
+        }
+    }
+
+    @Override
+    public void read(Consumer<byte[]> classConsumer) throws IOException {
+        if (!open()) {
+            new JarClassSource(jar).read(classConsumer);
+            return;
+        }
+
+        for (int i = 0; i < count; i++) {
+            classConsumer.accept(readClass(i));
+        }
+    }
+
+    @Override
+    public int getClassCount() {
+        return count;
+    }
+
+    /**
+     * @return the uncompressed size of a class, from the central directory
+     */
+    @Override
+    public long getClassSize(int index) {
+        return sizes[index];
+    }
+
+    /**
+     * reads one class, on any thread, once the jar is opened
+     */
+    @Override
+    public byte[] readClass(int index) throws IOException {
+        byte[] classBytes = new byte[sizes[index]];
+        ByteBuffer data = mapping.duplicate();
+        data.position(dataOffsets[index]);
+
+        if (methods[index] == STORED) {
+            data.get(classBytes);
+            return classBytes;
+        }
+
+        int compressedSize = compressedSizes[index];
+        byte[] input = inputBuffers.get();
+        if (input.length < compressedSize) {
+            input = new byte[Math.max(compressedSize, input.length * 2)];
+            inputBuffers.set(input);
+        }
+        data.get(input, 0, compressedSize);
+
+        Inflater inflater = inflaters.get();
+        try {
+            inflater.setInput(input, 0, compressedSize);
+            int inflated = 0;
+            while (inflated < classBytes.length) {
+                int len = inflater.inflate(classBytes, inflated, classBytes.length - inflated);
+                if ((len == 0) && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new ZipException("Truncated entry " + index + " in " + jar);
+                }
+                inflated += len;
+            }
+            return classBytes;
+        } catch (DataFormatException e) {
+            throw new ZipException("Corrupt entry " + index + " in " + jar + ": " + e.getMessage());
+        } finally {
+            inflater.reset();
+        }
+    }
+
+    private boolean parseCentralDirectory(ByteBuffer buffer) throws IOException {
+        int end = findEndOfCentralDirectory(buffer);
+        if (end < 0) {
+            throw new ZipException("No central directory found in " + jar);
+        }
+
+        int entries = buffer.getShort(end + 10) & 0xFFFF;
+        long directoryOffset = buffer.getInt(end + 16) & 0xFFFFFFFFL;
+        if ((entries == 0xFFFF) || (directoryOffset == 0xFFFFFFFFL)) {
+            return false;
+        }
+
+        int[] entryMethods = new int[entries];
+        int[] entryOffsets = new int[entries];
+        int[] entryCompressedSizes = new int[entries];
+        int[] entrySizes = new int[entries];
+        int classes = 0;
+        int offset = (int) directoryOffset;
+        for (int e = 0; e < entries; e++) {
+            if (buffer.getInt(offset) != CENTRAL_HEADER) {
+                throw new ZipException("Bad central directory entry " + e + " in " + jar);
+            }
+
+            int method = buffer.getShort(offset + 10) & 0xFFFF;
+            long compressedSize = buffer.getInt(offset + 20) & 0xFFFFFFFFL;
+            long size = buffer.getInt(offset + 24) & 0xFFFFFFFFL;
+            int nameLength = buffer.getShort(offset + 28) & 0xFFFF;
+            int extraLength = buffer.getShort(offset + 30) & 0xFFFF;
+            int commentLength = buffer.getShort(offset + 32) & 0xFFFF;
+            long localOffset = buffer.getInt(offset + 42) & 0xFFFFFFFFL;
+            if ((compressedSize == 0xFFFFFFFFL) || (size == 0xFFFFFFFFL) || (localOffset == 0xFFFFFFFFL)) {
+                return false;
+            }
+
+            if (isClass(buffer, offset + 46, nameLength)) {
+                if ((method != STORED) && (method != DEFLATED)) {
+                    throw new ZipException("Unsupported compression method " + method + " in " + jar);
+                }
+
+                int local = (int) localOffset;
+                if (buffer.getInt(local) != LOCAL_HEADER) {
+                    throw new ZipException("Bad local header for entry " + e + " in " + jar);
+                }
+                entryMethods[classes] = method;
+                entryOffsets[classes] = local + 30 + (buffer.getShort(local + 26) & 0xFFFF) + (buffer.getShort(local + 28) & 0xFFFF);
+                entryCompressedSizes[classes] = (int) compressedSize;
+                entrySizes[classes] = (int) size;
+                classes++;
+            }
+            offset += 46 + nameLength + extraLength + commentLength;
+        }
+
+        methods = entryMethods;
+        dataOffsets = entryOffsets;
+        compressedSizes = entryCompressedSizes;
+        sizes = entrySizes;
+        count = classes;
+        mapping = buffer;
+        return true;
+    }
+
+    private static int findEndOfCentralDirectory(ByteBuffer buffer) {
+        int last = buffer.limit() - END_RECORD_SIZE;
+        int first = Math.max(0, last - MAX_COMMENT_SIZE);
+        for (int offset = last; offset >= first; offset--) {
+            if (buffer.getInt(offset) == END_OF_CENTRAL_DIRECTORY) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isClass(ByteBuffer buffer, int nameOffset, int nameLength) {
+        byte[] name = new byte[nameLength];
+        ByteBuffer view = buffer.duplicate();
+        view.position(nameOffset);
+        view.get(name);
+        return JarClassSource.isClass(new String(name, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String toString() {
+        return jar.toString();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.util.List;
+
+/**
+ * an immutable, parsed method descriptor, as used at invoke sites. Instances are shared through
+ * {@link MethodDescriptorCache}, and hold interned argument and return types.
+ */
+public final class MethodDescriptor {
+
+    private final String descriptor;
+    private final TypeDescriptor[] argumentTypes;
+    private final int argumentSlots;
+    private final TypeDescriptor returnType;
+
+    MethodDescriptor(String descriptor) {
+        this.descriptor = descriptor;
+        List<TypeDescriptor> parmTypes = SignatureUtils.getParameterTypes(descriptor);
+        argumentTypes = parmTypes.toArray(new TypeDescriptor[parmTypes.size()]);
+        int slots = 0;
+        for (TypeDescriptor type : argumentTypes) {
+            slots += type.getCategory();
+        }
+        argumentSlots = slots;
+        returnType = SignatureUtils.getReturnType(descriptor);
+    }
+
+    public String getDescriptor() {
+        return descriptor;
+    }
+
+    /**
+     * @return the number of arguments, which is the number of parameter stack entries they occupy
+     */
+    public int getArgumentCount() {
+        return argumentTypes.length;
+    }
+
+    /**
+     * @return the number of jvm stack slots the arguments occupy, counting long and double as 2
+     */
+    public int getArgumentSlots() {
+        return argumentSlots;
+    }
+
+    public TypeDescriptor getArgumentType(int index) {
+        return argumentTypes[index];
+    }
+
+    public TypeDescriptor getReturnType() {
+        return returnType;
+    }
+
+    @Override
+    public String toString() {
+        return descriptor;
+    }
+}
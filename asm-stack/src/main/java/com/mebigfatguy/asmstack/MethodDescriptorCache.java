@@ -0,0 +1,62 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * a bounded, lock free cache of parsed method descriptors shared by all threads. The cache is direct mapped
+ * by the descriptor's hash code, so a colliding descriptor simply replaces the previous entry.
+ */
+public final class MethodDescriptorCache {
+
+    private static final int CACHE_SIZE = 1 << 12;
+    private static final int CACHE_MASK = CACHE_SIZE - 1;
+
+    private static final AtomicReferenceArray<MethodDescriptor> entries = new AtomicReferenceArray<>(CACHE_SIZE);
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+
+    private MethodDescriptorCache() {
+    }
+
+    public static MethodDescriptor get(String descriptor) {
+        int hash = descriptor.hashCode();
+        int index = (hash ^ (hash >>> 16)) & CACHE_MASK;
+
+        MethodDescriptor md = entries.get(index);
+        if ((md != null) && ((md.getDescriptor() == descriptor) || md.getDescriptor().equals(descriptor))) {
+            hits.increment();
+            return md;
+        }
+
+        misses.increment();
+        md = new MethodDescriptor(descriptor);
+        entries.lazySet(index, md);
+        return md;
+    }
+
+    public static long getHits() {
+        return hits.sum();
+    }
+
+    public static long getMisses() {
+        return misses.sum();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * what a {@link ParameterStackClassVisitor} learned about one method. Depths are counted in stack entries, where a
+ * long or double is one entry, as everywhere else in this library.
+ */
+public final class MethodResult {
+
+    private final String className;
+    private final String methodName;
+    private final String descriptor;
+    private final int access;
+    private final int maxDepth;
+    private final List<CallSiteResult> callSites;
+
+    public MethodResult(String className, String methodName, String descriptor, int access, int maxDepth, List<CallSiteResult> callSites) {
+        this.className = className;
+        this.methodName = methodName;
+        this.descriptor = descriptor;
+        this.access = access;
+        this.maxDepth = maxDepth;
+        this.callSites = callSites;
+    }
+
+    /**
+     * @return the class, name and descriptor of the method, as owner.namedescriptor
+     */
+    public String getId() {
+        return className + '.' + methodName + descriptor;
+    }
+
+    /**
+     * @return the internal name of the class declaring the method
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public String getDescriptor() {
+        return descriptor;
+    }
+
+    public int getAccess() {
+        return access;
+    }
+
+    /**
+     * @return the most entries the stack held at any point of the method
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return the number of invoke and invokedynamic instructions in the method
+     */
+    public int getCallSiteCount() {
+        return callSites.size();
+    }
+
+    /**
+     * @return the invoke and invokedynamic instructions of the method, in code order
+     */
+    public List<CallSiteResult> getCallSites() {
+        return callSites;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(className, methodName, descriptor);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MethodResult)) {
+            return false;
+        }
+
+        MethodResult that = (MethodResult) o;
+        return className.equals(that.className) && methodName.equals(that.methodName) && descriptor.equals(that.descriptor)
+                && (access == that.access) && (maxDepth == that.maxDepth) && callSites.equals(that.callSites);
+    }
+
+    @Override
+    public String toString() {
+        return getId() + " [maxDepth=" + maxDepth + ", callSites=" + callSites.size() + ']';
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.util.Arrays;
+
+import org.objectweb.asm.Opcodes;
+
+/**
+ * the stack effect of each opcode whose effect doesn't depend on its operands or on the types already on the stack,
+ * as a number of entries popped, and whether an entry of a fixed type is pushed. Opcodes that need more, such as the
+ * constants, DUP forms or invocations, are marked special and are handled by the visitor itself.
+ */
+final class OpcodeEffects {
+
+    private static final byte SPECIAL = -1;
+
+    private static final byte[] pops = new byte[256];
+    private static final byte[] pushes = new byte[256];
+    private static final int[] types = new int[256];
+    private static final boolean[] endsFlow = new boolean[256];
+
+    static {
+        Arrays.fill(pops, SPECIAL);
+
+        effect(Opcodes.NOP, 0, Types.VOID);
+        effect(Opcodes.ACONST_NULL, 0, Types.UNKNOWN);
+
+        effect(Opcodes.IALOAD, 2, Types.INT);
+        effect(Opcodes.LALOAD, 2, Types.LONG);
+        effect(Opcodes.FALOAD, 2, Types.FLOAT);
+        effect(Opcodes.DALOAD, 2, Types.DOUBLE);
+        // AALOAD pushes the component type of the array it loads from, so is special
+        effect(Opcodes.BALOAD, 2, Types.BYTE);
+        effect(Opcodes.CALOAD, 2, Types.CHAR);
+        effect(Opcodes.SALOAD, 2, Types.SHORT);
+        for (int opcode = Opcodes.IASTORE; opcode <= Opcodes.SASTORE; opcode++) {
+            effect(opcode, 3, Types.VOID);
+        }
+        effect(Opcodes.POP, 1, Types.VOID);
+
+        // the arithmetic opcodes cycle through int, long, float and double
+        int[] numericTypes = { Types.INT, Types.LONG, Types.FLOAT, Types.DOUBLE };
+        for (int opcode = Opcodes.IADD; opcode <= Opcodes.DREM; opcode++) {
+            effect(opcode, 2, numericTypes[(opcode - Opcodes.IADD) & 3]);
+        }
+        for (int opcode = Opcodes.INEG; opcode <= Opcodes.DNEG; opcode++) {
+            effect(opcode, 1, numericTypes[(opcode - Opcodes.INEG) & 3]);
+        }
+        // the shifts and bitwise opcodes alternate between int and long
+        for (int opcode = Opcodes.ISHL; opcode <= Opcodes.LXOR; opcode++) {
+            effect(opcode, 2, ((opcode - Opcodes.ISHL) & 1) == 0 ? Types.INT : Types.LONG);
+        }
+
+        effect(Opcodes.I2L, 1, Types.LONG);
+        effect(Opcodes.I2F, 1, Types.FLOAT);
+        effect(Opcodes.I2D, 1, Types.DOUBLE);
+        effect(Opcodes.L2I, 1, Types.INT);
+        effect(Opcodes.L2F, 1, Types.FLOAT);
+        effect(Opcodes.L2D, 1, Types.DOUBLE);
+        effect(Opcodes.F2I, 1, Types.INT);
+        effect(Opcodes.F2L, 1, Types.LONG);
+        effect(Opcodes.F2D, 1, Types.DOUBLE);
+        effect(Opcodes.D2I, 1, Types.INT);
+        effect(Opcodes.D2L, 1, Types.LONG);
+        effect(Opcodes.D2F, 1, Types.FLOAT);
+        effect(Opcodes.I2B, 1, Types.BYTE);
+        effect(Opcodes.I2C, 1, Types.CHAR);
+        effect(Opcodes.I2S, 1, Types.SHORT);
+        for (int opcode = Opcodes.LCMP; opcode <= Opcodes.DCMPG; opcode++) {
+            effect(opcode, 2, Types.INT);
+        }
+
+        for (int opcode = Opcodes.IRETURN; opcode <= Opcodes.ARETURN; opcode++) {
+            effect(opcode, 1, Types.VOID);
+            endsFlow[opcode] = true;
+        }
+        effect(Opcodes.RETURN, 0, Types.VOID);
+        endsFlow[Opcodes.RETURN] = true;
+        effect(Opcodes.ARRAYLENGTH, 1, Types.INT);
+        effect(Opcodes.ATHROW, 1, Types.VOID);
+        endsFlow[Opcodes.ATHROW] = true;
+        effect(Opcodes.MONITORENTER, 1, Types.VOID);
+        effect(Opcodes.MONITOREXIT, 1, Types.VOID);
+
+        effect(Opcodes.ILOAD, 0, Types.INT);
+        effect(Opcodes.LLOAD, 0, Types.LONG);
+        effect(Opcodes.FLOAD, 0, Types.FLOAT);
+        effect(Opcodes.DLOAD, 0, Types.DOUBLE);
+        for (int opcode = Opcodes.ISTORE; opcode <= Opcodes.ASTORE; opcode++) {
+            effect(opcode, 1, Types.VOID);
+        }
+        effect(Opcodes.RET, 0, Types.VOID);
+        endsFlow[Opcodes.RET] = true;
+
+        for (int opcode = Opcodes.IFEQ; opcode <= Opcodes.IFLE; opcode++) {
+            effect(opcode, 1, Types.VOID);
+        }
+        for (int opcode = Opcodes.IF_ICMPEQ; opcode <= Opcodes.IF_ACMPNE; opcode++) {
+            effect(opcode, 2, Types.VOID);
+        }
+        effect(Opcodes.IFNULL, 1, Types.VOID);
+        effect(Opcodes.IFNONNULL, 1, Types.VOID);
+        effect(Opcodes.GOTO, 0, Types.VOID);
+        endsFlow[Opcodes.GOTO] = true;
+    }
+
+    private OpcodeEffects() {
+    }
+
+    /**
+     * @return whether the opcode's effect is described by the tables
+     */
+    static boolean isSimple(int opcode) {
+        return pops[opcode] != SPECIAL;
+    }
+
+    static int pops(int opcode) {
+        return pops[opcode];
+    }
+
+    /**
+     * @return the number of entries pushed, 0 or 1, as each value is one entry whatever its category
+     */
+    static int pushes(int opcode) {
+        return pushes[opcode];
+    }
+
+    /**
+     * @return the type code of the entry pushed, or {@link Types#VOID} when nothing is
+     */
+    static int type(int opcode) {
+        return types[opcode];
+    }
+
+    /**
+     * @return whether control never falls through to the next instruction
+     */
+    static boolean endsFlow(int opcode) {
+        return endsFlow[opcode];
+    }
+
+    private static void effect(int opcode, int popCount, int type) {
+        pops[opcode] = (byte) popCount;
+        pushes[opcode] = (byte) ((type == Types.VOID) ? 0 : 1);
+        types[opcode] = type;
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntConsumer;
+import java.util.function.IntToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * analyzes many classes at once, such as every class of a jar, on a ForkJoinPool. Each worker simulates with its
+ * own pooled method visitor, while the descriptor, field and type tables are shared by all. Results are merged in
+ * the order the source gave the classes, so they don't depend on the parallelism or the scheduling.
+ * <p>
+ * By default classes are scheduled longest first: the cost of each class is estimated from its class file, and
+ * workers take classes from a shared cursor over the classes ordered by falling cost, so that a few huge classes
+ * start right away rather than finishing last while the other workers sit idle. Otherwise the classes are split
+ * into ranges, in source order, that workers steal from each other. The timings of the last run are available
+ * from {@link #getStatistics()}.
+ * <p>
+ * For scans too large to hold every result at once, {@link #stream(ClassSource)} hands results out as classes
+ * complete, with only a bounded number of classes read but not yet consumed.
+ * <p>
+ * With a {@link ResultCache} set, classes whose results were cached by an earlier run aren't simulated at all.
+ */
+public class ParallelAnalyzer {
+
+    /**
+     * how many leaf tasks to split the classes into per worker, enough for stealing to even out classes of different sizes
+     */
+    private static final int TASKS_PER_WORKER = 8;
+
+    private final AnalysisMode mode;
+    private final int parallelism;
+    private boolean longestFirst = true;
+    private int maxInFlightClasses;
+    private ResultCache resultCache;
+    private volatile AnalysisStatistics statistics;
+
+    /**
+     * creates an analyzer using every available processor
+     *
+     * @param mode how much of the stack to simulate
+     */
+    public ParallelAnalyzer(AnalysisMode mode) {
+        this(mode, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param mode how much of the stack to simulate
+     * @param parallelism the number of worker threads
+     */
+    public ParallelAnalyzer(AnalysisMode mode, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1, but was " + parallelism);
+        }
+        this.mode = mode;
+        this.parallelism = parallelism;
+        maxInFlightClasses = parallelism * 4;
+    }
+
+    public AnalysisMode getMode() {
+        return mode;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public boolean isLongestFirst() {
+        return longestFirst;
+    }
+
+    /**
+     * @param longestFirst whether to start the classes estimated to be the most expensive first, rather than
+     *            analyzing classes in source order
+     */
+    public void setLongestFirst(boolean longestFirst) {
+        this.longestFirst = longestFirst;
+    }
+
+    public int getMaxInFlightClasses() {
+        return maxInFlightClasses;
+    }
+
+    /**
+     * @param maxInFlightClasses how many classes a stream may have read, but whose results haven't yet been
+     *            consumed, bounding the memory it holds
+     */
+    public void setMaxInFlightClasses(int maxInFlightClasses) {
+        if (maxInFlightClasses < 1) {
+            throw new IllegalArgumentException("Max in flight classes must be at least 1, but was " + maxInFlightClasses);
+        }
+        this.maxInFlightClasses = maxInFlightClasses;
+    }
+
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * @param resultCache where to look up the results of classes analyzed before, and to save those of classes
+     *            that weren't, or null to analyze every class
+     */
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * @return the timings of the last completed run, or null before the first
+     */
+    public AnalysisStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @param path a jar file, or a directory of class files
+     * @return the result of every method with code
+     * @throws IOException if the classes can't be read
+     */
+    public List<MethodResult> analyze(Path path) throws IOException {
+        return analyze(ClassSource.of(path));
+    }
+
+    /**
+     * @param source where to read the classes from
+     * @return the result of every method with code
+     * @throws IOException if the classes can't be read
+     */
+    public List<MethodResult> analyze(ClassSource source) throws IOException {
+        if ((source instanceof IndexedClassSource) && ((IndexedClassSource) source).open()) {
+            // classes are read by the workers, such as inflated straight from a mapped jar, and costed by their size
+            IndexedClassSource indexed = (IndexedClassSource) source;
+            try {
+                return analyze(indexed.getClassCount(), indexed::readClass, indexed::getClassSize);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        List<byte[]> classes = new ArrayList<>();
+        source.read(classes::add);
+        return analyze(classes);
+    }
+
+    /**
+     * streams the result of every method with code, class by class as each class completes, so in no particular
+     * order. Classes are read and analyzed in the background while the stream is consumed, pausing whenever
+     * {@link #getMaxInFlightClasses()} classes are waiting for the consumer. Open the stream with try with
+     * resources: a stream that isn't consumed to the end, such as after findFirst, keeps its reader thread and
+     * worker pool until it is closed, or until it has been garbage collected if it is simply dropped. Read and
+     * analysis failures are thrown by the stream, as an UncheckedIOException or the exception or error thrown
+     * analyzing the class.
+     *
+     * @param source where to read the classes from
+     * @return the results, one method at a time
+     */
+    public Stream<MethodResult> stream(ClassSource source) {
+        return AnalysisStream.open(this::analyzeClass, source, parallelism, maxInFlightClasses);
+    }
+
+    /**
+     * @param path a jar file, or a directory of class files
+     * @return the results, one method at a time
+     * @see #stream(ClassSource)
+     */
+    public Stream<MethodResult> stream(Path path) {
+        return stream(ClassSource.of(path));
+    }
+
+    /**
+     * @param classes the class files to analyze
+     * @return the result of every method with code
+     */
+    public List<MethodResult> analyze(List<byte[]> classes) {
+        return analyze(classes.size(), classes::get, i -> ClassCost.estimate(classes.get(i)));
+    }
+
+    private List<MethodResult> analyze(int count, ClassReading classes, IntToLongFunction costEstimate) {
+        AtomicReferenceArray<List<MethodResult>> perClass = new AtomicReferenceArray<>(count);
+        long[] classNanos = new long[count];
+        IntConsumer analysis = i -> {
+            long start = System.nanoTime();
+            try {
+                perClass.set(i, analyzeClass(classes.read(i)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            classNanos[i] = System.nanoTime() - start;
+        };
+
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            int leafSize = Math.max(1, count / (parallelism * TASKS_PER_WORKER));
+            if (longestFirst) {
+                long[] costs = new long[count];
+                pool.invoke(new RangeTask(0, count, leafSize, i -> costs[i] = costEstimate.applyAsLong(i)));
+                pool.invoke(new ScheduleTask(longestFirst(costs), Math.min(parallelism, count), analysis));
+            } else {
+                pool.invoke(new RangeTask(0, count, leafSize, analysis));
+            }
+        } finally {
+            pool.shutdown();
+        }
+        statistics = new AnalysisStatistics(classNanos, System.nanoTime() - start);
+
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            total += perClass.get(i).size();
+        }
+        List<MethodResult> merged = new ArrayList<>(total);
+        for (int i = 0; i < count; i++) {
+            merged.addAll(perClass.get(i));
+        }
+        return merged;
+    }
+
+    /**
+     * returns the indices of the classes ordered by falling cost, sorting each cost together with its index
+     */
+    private static int[] longestFirst(long[] costs) {
+        long[] keys = new long[costs.length];
+        for (int i = 0; i < costs.length; i++) {
+            keys[i] = (Math.min(costs[i], Integer.MAX_VALUE) << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        int[] order = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            order[i] = (int) keys[keys.length - i - 1];
+        }
+        return order;
+    }
+
+    /**
+     * analyzes a class, unless its results are in the result cache
+     */
+    private List<MethodResult> analyzeClass(byte[] classBytes) {
+        ResultCache cache = resultCache;
+        return (cache == null) ? ParameterStackClassVisitor.analyzeClass(classBytes, mode) : cache.analyze(classBytes, mode);
+    }
+
+    /**
+     * reads a class by its index in the source
+     */
+    private interface ClassReading {
+        byte[] read(int index) throws IOException;
+    }
+
+    /**
+     * runs an action on every index of a range, splitting it in halves for idle workers to steal
+     */
+    private static final class RangeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int start;
+        private final int end;
+        private final int leafSize;
+        private final transient IntConsumer action;
+
+        RangeTask(int start, int end, int leafSize, IntConsumer action) {
+            this.start = start;
+            this.end = end;
+            this.leafSize = leafSize;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if ((end - start) <= leafSize) {
+                for (int i = start; i < end; i++) {
+                    action.accept(i);
+                }
+                return;
+            }
+
+            int middle = (start + end) >>> 1;
+            invokeAll(new RangeTask(start, middle, leafSize, action), new RangeTask(middle, end, leafSize, action));
+        }
+    }
+
+    /**
+     * runs one claiming task per worker, each taking the next index in order until they run out, so every
+     * class is started as soon as a worker is free, in the given order
+     */
+    private static final class ScheduleTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] order;
+        private final int workers;
+        private final transient IntConsumer action;
+
+        ScheduleTask(int[] order, int workers, IntConsumer action) {
+            this.order = order;
+            this.workers = workers;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            AtomicInteger cursor = new AtomicInteger();
+            List<RecursiveAction> claimers = new ArrayList<>(workers);
+            for (int w = 0; w < workers; w++) {
+                claimers.add(new RecursiveAction() {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected void compute() {
+                        int next;
+                        while ((next = cursor.getAndIncrement()) < order.length) {
+                            action.accept(order[next]);
+                        }
+                    }
+                });
+            }
+            invokeAll(claimers);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+/**
+ * an immutable entry of the simulated stack, as handed out by {@link ParameterStack#peek(int)} and
+ * {@link ParameterStack#pop()}. A plain parameter only knows its type, and is shared by all entries of that type;
+ * entries holding a constant or loaded from a field are specialized subclasses, and the common small constants are
+ * shared as well. Changing a parameter returns a copy, so instances can be held onto safely.
+ * <p>
+ * Earlier versions had setTypeSignature and setValue, which changed the parameter in place; they were removed, a
+ * breaking change, as a shared instance can't know which stack entry it stands for. Use
+ * {@link #withTypeSignature(String)} and {@link #withValue(Object)}, which return the changed copy.
+ */
+public class Parameter {
+
+    private final TypeDescriptor type;
+
+    public Parameter(String signature) {
+        this(TypeDescriptor.of(signature));
+    }
+
+    Parameter(TypeDescriptor t) {
+        type = t;
+    }
+
+    /**
+     * returns the parameter for a stack entry, sharing the instance wherever the entry allows it
+     *
+     * @param type the type code of the entry
+     * @param valueKind how the value of the entry is held, one of the value kinds of {@link ParameterStack}
+     * @param primitiveValue the value of a primitive constant, with float and double values held as their raw bits
+     * @param objectValue the value of any other constant
+     * @param field the field the entry was loaded from, or null
+     * @return the parameter
+     */
+    static Parameter of(int type, byte valueKind, long primitiveValue, Object objectValue, Field field) {
+        if (field != null) {
+            return new FieldParameter(Types.descriptor(type), field);
+        }
+
+        switch (valueKind) {
+            case ParameterStack.PRIMITIVE_VALUE:
+                return ConstantParameter.primitive(type, primitiveValue);
+
+            case ParameterStack.OBJECT_VALUE:
+                return new ConstantParameter(Types.descriptor(type), objectValue);
+
+            default:
+                return Types.descriptor(type).getParameter();
+        }
+    }
+
+    public String getTypeSignature() {
+        return type.getDescriptor();
+    }
+
+    /**
+     * @return a copy of this parameter with the given type, keeping its value and field
+     */
+    public Parameter withTypeSignature(String sig) {
+        return withType(TypeDescriptor.of(sig));
+    }
+
+    public TypeDescriptor getType() {
+        return type;
+    }
+
+    Parameter withType(TypeDescriptor t) {
+        return t.getParameter();
+    }
+
+    /**
+     * the slot was never recorded, so before parameters became immutable this always returned 0, which is also a
+     * valid slot. It now returns -1, so callers can tell it isn't known.
+     *
+     * @return the local variable the value was loaded from, or -1 if not known, which is currently always
+     */
+    public int getVariableSlot() {
+        return -1;
+    }
+
+    public Field getField() {
+        return null;
+    }
+
+    public <T> T getValue() {
+        return null;
+    }
+
+    /**
+     * @return a copy of this parameter holding the given constant value, or no value if null
+     */
+    public Parameter withValue(Object o) {
+        return (o == null) ? type.getParameter() : new ConstantParameter(type, o);
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(type);
+    }
+}
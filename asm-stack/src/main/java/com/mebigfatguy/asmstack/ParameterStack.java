@@ -0,0 +1,129 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+/**
+ * the simulated operand stack of a method, one entry per value regardless of the value's category.
+ * Entries are only turned into {@link Parameter}s when asked for by peek or pop, and those are immutable, so
+ * changing an entry, as CHECKCAST does, replaces it rather than the parameters already handed out.
+ *
+ * @see ArrayParameterStack
+ * @see LinkedParameterStack
+ */
+public abstract class ParameterStack {
+
+    static final byte NO_VALUE = 0;
+    static final byte PRIMITIVE_VALUE = 1;
+    static final byte OBJECT_VALUE = 2;
+
+    /**
+     * pushes an entry holding the type, value and field of a parameter
+     */
+    void push(Parameter p) {
+        int type = p.getType().getId();
+        Object value = p.getValue();
+        if (value instanceof Integer) {
+            pushEntry(type, PRIMITIVE_VALUE, ((Integer) value).intValue(), null, p.getField());
+        } else if (value instanceof Long) {
+            pushEntry(type, PRIMITIVE_VALUE, ((Long) value).longValue(), null, p.getField());
+        } else if (value instanceof Float) {
+            pushEntry(type, PRIMITIVE_VALUE, Float.floatToRawIntBits(((Float) value).floatValue()), null, p.getField());
+        } else if (value instanceof Double) {
+            pushEntry(type, PRIMITIVE_VALUE, Double.doubleToRawLongBits(((Double) value).doubleValue()), null, p.getField());
+        } else {
+            pushEntry(type, (value == null) ? NO_VALUE : OBJECT_VALUE, 0, value, p.getField());
+        }
+    }
+
+    abstract void push(int type);
+
+    abstract void pushInt(int type, int value);
+
+    abstract void pushLong(long value);
+
+    abstract void pushFloat(float value);
+
+    abstract void pushDouble(double value);
+
+    abstract void pushConstant(int type, Object value);
+
+    abstract void pushField(int type, Field field);
+
+    /**
+     * pushes an entry as held by a snapshot, where float and double values are held as their raw bits
+     */
+    abstract void pushEntry(int type, byte valueKind, long primitiveValue, Object objectValue, Field field);
+
+    public abstract Parameter pop();
+
+    public abstract void pop(int numItems);
+
+    public abstract Parameter peek(int offset);
+
+    public abstract int size();
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    abstract int typeAt(int offset);
+
+    abstract void retype(int offset, int type);
+
+    /**
+     * replaces an entry with one of the given type that carries no constant value or field
+     */
+    abstract void replace(int offset, int type);
+
+    /**
+     * duplicates the top count entries, and inserts the copies below the next depth entries,
+     * which covers all the forms of DUP, DUP_X1, DUP_X2, DUP2, DUP2_X1 and DUP2_X2
+     *
+     * @param count the number of entries to duplicate
+     * @param depth the number of entries below the duplicated ones to skip before inserting the copies
+     */
+    abstract void dupX(int count, int depth);
+
+    abstract void swap();
+
+    /**
+     * captures the current entries, so that they can be restored at a branch target. One snapshot can be
+     * shared by any number of targets, and an empty stack is captured without allocating.
+     */
+    abstract Snapshot snapshot();
+
+    /**
+     * replaces the entries of this stack with ones captured by {@link #snapshot()}, which is cheapest when the
+     * snapshot was taken from the same kind of stack
+     */
+    abstract void restore(Snapshot snapshot);
+
+    abstract void clear();
+
+    /**
+     * an immutable capture of the stack entries at one program point
+     */
+    interface Snapshot {
+        int size();
+
+        /**
+         * pushes the captured entries, bottom first, onto a stack of any kind
+         */
+        void pushInto(ParameterStack stack);
+    }
+}
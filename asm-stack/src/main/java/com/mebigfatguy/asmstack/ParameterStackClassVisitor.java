@@ -0,0 +1,98 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * a class visitor that simulates the stack of every method with code, using a pooled
+ * {@link ParameterStackMethodVisitor} set up for whether the method is static, and reports a {@link MethodResult}
+ * for each as soon as the method ends. Abstract and native methods are passed through untouched, and downstream
+ * visitors still see every event.
+ */
+public class ParameterStackClassVisitor extends ClassVisitor {
+
+    private final AnalysisMode mode;
+    private final Consumer<? super MethodResult> resultConsumer;
+    private String className;
+
+    /**
+     * @param api the asm api version implemented by this visitor
+     * @param classVisitor the visitor to delegate to, or null
+     * @param mode how much of the stack to simulate
+     * @param resultConsumer receives the result of each method, on the thread visiting the class
+     */
+    public ParameterStackClassVisitor(int api, ClassVisitor classVisitor, AnalysisMode mode, Consumer<? super MethodResult> resultConsumer) {
+        super(api, classVisitor);
+        this.mode = mode;
+        this.resultConsumer = resultConsumer;
+    }
+
+    /**
+     * simulates every method of a class, reading it with the flags best suited to the mode
+     *
+     * @param classBytes the class file
+     * @param mode how much of the stack to simulate
+     * @return the result of each method with code, in the order they appear in the class file
+     */
+    public static List<MethodResult> analyzeClass(byte[] classBytes, AnalysisMode mode) {
+        List<MethodResult> results = new ArrayList<>();
+        new ClassReader(classBytes).accept(new ParameterStackClassVisitor(Opcodes.ASM9, null, mode, results::add), mode.getReaderFlags());
+        return results;
+    }
+
+    /**
+     * simulates every method of a class, keeping the types, values and fields of the stack
+     *
+     * @param classBytes the class file
+     * @return the result of each method with code, in the order they appear in the class file
+     */
+    public static List<MethodResult> analyzeClass(byte[] classBytes) {
+        return analyzeClass(classBytes, AnalysisMode.VALUES);
+    }
+
+    public AnalysisMode getMode() {
+        return mode;
+    }
+
+    @Override
+    public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+        className = name;
+        super.visit(version, access, name, signature, superName, interfaces);
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+        MethodVisitor methodVisitor = super.visitMethod(access, name, descriptor, signature, exceptions);
+        if ((access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE)) != 0) {
+            return methodVisitor;
+        }
+
+        ParameterStackMethodVisitorPool<AnalysisMethodVisitor> pool = mode.getPool();
+        AnalysisMethodVisitor visitor = pool.borrow((access & Opcodes.ACC_STATIC) != 0, methodVisitor);
+        visitor.begin(className, name, descriptor, access, resultConsumer, pool);
+        return visitor;
+    }
+}
@@ -0,0 +1,398 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+
+/**
+ * a dataflow alternative to the linear simulation of {@link ParameterStackMethodVisitor}, for class files without
+ * stack map frames, or where constants must be tracked precisely across branches. The method is recorded, split into
+ * basic blocks at branches, branch targets and exception handlers, and the stack at the start of each block is found
+ * by iterating a worklist, in reverse postorder, until the stacks joined from all paths into each block stop changing.
+ * The method is then replayed into the target visitor, whose stack is set to the computed one at the start of each
+ * block.
+ *
+ * <pre>
+ * public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+ *     boolean isStatic = (access &amp; Opcodes.ACC_STATIC) != 0;
+ *     return new ParameterStackDataflowVisitor(Opcodes.ASM9, access, name, descriptor, signature, exceptions,
+ *             new MyParameterStackMethodVisitor(Opcodes.ASM9, isStatic));
+ * }
+ * </pre>
+ */
+public class ParameterStackDataflowVisitor extends MethodNode {
+
+    /**
+     * the default number of times each block may be simulated before the iteration is abandoned. Joins only ever
+     * drop constants or widen types, so a block is normally simulated a handful of times at most.
+     */
+    public static final int DEFAULT_MAX_VISITS_PER_BLOCK = 16;
+
+    private final ParameterStackMethodVisitor target;
+    private int maxVisitsPerBlock = DEFAULT_MAX_VISITS_PER_BLOCK;
+    private int blockCount;
+    private int iterations;
+    private boolean converged;
+
+    /**
+     * creates a visitor that records a method, and replays it into the target once its stacks are computed
+     *
+     * @param api the asm api version implemented by this visitor
+     * @param access the method's access flags
+     * @param name the method's name
+     * @param descriptor the method's descriptor
+     * @param signature the method's generic signature, or null
+     * @param exceptions the internal names of the method's declared exceptions, or null
+     * @param target the visitor to replay the method into
+     */
+    public ParameterStackDataflowVisitor(int api, int access, String name, String descriptor, String signature, String[] exceptions,
+                                         ParameterStackMethodVisitor target) {
+        super(api, access, name, descriptor, signature, exceptions);
+        this.target = target;
+    }
+
+    /**
+     * bounds the work done on a method by how many times any one block may be simulated. A method with a block
+     * that would be simulated more often is still replayed, with the stacks found so far, and reports false from
+     * {@link #isConverged()}.
+     */
+    public void setMaxVisitsPerBlock(int maxVisitsPerBlock) {
+        this.maxVisitsPerBlock = maxVisitsPerBlock;
+    }
+
+    /**
+     * @return the number of basic blocks of the last method visited
+     */
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    /**
+     * @return the number of block simulations it took to reach the fixed point for the last method visited
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return whether the stacks of the last method visited reached a fixed point within the iteration bound
+     */
+    public boolean isConverged() {
+        return converged;
+    }
+
+    @Override
+    public void visitEnd() {
+        super.visitEnd();
+        Map<Label, ParameterStack.Snapshot> entries = analyze();
+        target.setMethodDescriptor(desc);
+        accept(new BlockEntryVisitor(api, target, entries));
+    }
+
+    /**
+     * finds the stack at the start of every reachable block
+     *
+     * @return the stacks at the start of the blocks that begin with a label, as blocks that don't can only be
+     *         reached by falling into them
+     */
+    private Map<Label, ParameterStack.Snapshot> analyze() {
+        iterations = 0;
+        converged = true;
+        Map<Label, ParameterStack.Snapshot> labelEntries = new IdentityHashMap<>();
+
+        AbstractInsnNode[] insns = instructions.toArray();
+        if (insns.length == 0) {
+            blockCount = 0;
+            return labelEntries;
+        }
+
+        boolean[] leaders = new boolean[insns.length + 1];
+        leaders[0] = true;
+        for (TryCatchBlockNode tryCatch : tryCatchBlocks) {
+            leaders[instructions.indexOf(tryCatch.handler)] = true;
+        }
+        for (int i = 0; i < insns.length; i++) {
+            AbstractInsnNode insn = insns[i];
+            switch (insn.getType()) {
+                case AbstractInsnNode.JUMP_INSN:
+                    leaders[instructions.indexOf(((JumpInsnNode) insn).label)] = true;
+                    leaders[i + 1] = true;
+                    break;
+
+                case AbstractInsnNode.TABLESWITCH_INSN:
+                    TableSwitchInsnNode tableSwitch = (TableSwitchInsnNode) insn;
+                    leaders[instructions.indexOf(tableSwitch.dflt)] = true;
+                    for (LabelNode label : tableSwitch.labels) {
+                        leaders[instructions.indexOf(label)] = true;
+                    }
+                    leaders[i + 1] = true;
+                    break;
+
+                case AbstractInsnNode.LOOKUPSWITCH_INSN:
+                    LookupSwitchInsnNode lookupSwitch = (LookupSwitchInsnNode) insn;
+                    leaders[instructions.indexOf(lookupSwitch.dflt)] = true;
+                    for (LabelNode label : lookupSwitch.labels) {
+                        leaders[instructions.indexOf(label)] = true;
+                    }
+                    leaders[i + 1] = true;
+                    break;
+
+                default:
+                    if ((insn.getOpcode() >= 0) && OpcodeEffects.endsFlow(insn.getOpcode())) {
+                        leaders[i + 1] = true;
+                    }
+                    break;
+            }
+        }
+
+        int[] blockOf = new int[insns.length];
+        int[] starts = new int[insns.length + 1];
+        int blocks = 0;
+        for (int i = 0; i < insns.length; i++) {
+            if (leaders[i]) {
+                starts[blocks++] = i;
+            }
+            blockOf[i] = blocks - 1;
+        }
+        starts[blocks] = insns.length;
+        blockCount = blocks;
+
+        int[][] successors = new int[blocks][];
+        int[] subroutines = new int[blocks];
+        Arrays.fill(subroutines, -1);
+        for (int b = 0; b < blocks; b++) {
+            successors[b] = successors(insns, blockOf, starts[b], starts[b + 1], subroutines, b);
+        }
+
+        int[] handlerBlocks = new int[tryCatchBlocks.size()];
+        for (int i = 0; i < handlerBlocks.length; i++) {
+            handlerBlocks[i] = blockOf[instructions.indexOf(tryCatchBlocks.get(i).handler)];
+        }
+
+        int[] order = reversePostorder(successors, subroutines, handlerBlocks);
+        int[] positions = new int[blocks];
+        Arrays.fill(positions, -1);
+        for (int i = 0; i < order.length; i++) {
+            positions[order[i]] = i;
+        }
+
+        LinkedParameterStack stack = new LinkedParameterStack();
+        ParameterStack.Snapshot[] entries = new ParameterStack.Snapshot[blocks];
+        BitSet pending = new BitSet(order.length);
+
+        entries[0] = stack.snapshot();
+        pending.set(positions[0]);
+        for (int i = 0; i < handlerBlocks.length; i++) {
+            String type = tryCatchBlocks.get(i).type;
+            stack.clear();
+            stack.push((type == null) ? Types.THROWABLE : Types.internObjectType(type));
+            flow(entries, handlerBlocks[i], stack.snapshot(), positions, pending);
+        }
+
+        ParameterStackMethodVisitor simulator = new ParameterStackMethodVisitor(api, (access & Opcodes.ACC_STATIC) != 0, null, stack);
+        int[] visits = new int[blocks];
+        for (int position = pending.nextSetBit(0); position >= 0; position = pending.nextSetBit(0)) {
+            int b = order[position];
+            if (visits[b] >= maxVisitsPerBlock) {
+                converged = false;
+                break;
+            }
+            pending.clear(position);
+            visits[b]++;
+            iterations++;
+
+            simulator.enterBlock(entries[b]);
+            for (int i = starts[b]; i < starts[b + 1]; i++) {
+                insns[i].accept(simulator);
+            }
+
+            ParameterStack.Snapshot exit = stack.snapshot();
+            for (int successor : successors[b]) {
+                flow(entries, successor, exit, positions, pending);
+            }
+            if (subroutines[b] >= 0) {
+                // the subroutine sees the return address, that the simulator has already popped
+                stack.push(Types.INT);
+                flow(entries, subroutines[b], stack.snapshot(), positions, pending);
+            }
+        }
+
+        for (int b = 0; b < blocks; b++) {
+            AbstractInsnNode leader = insns[starts[b]];
+            if ((entries[b] != null) && (leader.getType() == AbstractInsnNode.LABEL)) {
+                labelEntries.put(((LabelNode) leader).getLabel(), entries[b]);
+            }
+        }
+        return labelEntries;
+    }
+
+    private static void flow(ParameterStack.Snapshot[] entries, int block, ParameterStack.Snapshot arriving, int[] positions, BitSet pending) {
+        ParameterStack.Snapshot known = entries[block];
+        ParameterStack.Snapshot merged = (known == null) ? arriving : LinkedParameterStack.merge(known, arriving);
+        if (merged != known) {
+            entries[block] = merged;
+            pending.set(positions[block]);
+        }
+    }
+
+    /**
+     * finds the blocks control can pass to from the end of a block, other than exception handlers, noting the
+     * target of a JSR separately, as it is entered with the return address pushed
+     */
+    private int[] successors(AbstractInsnNode[] insns, int[] blockOf, int start, int end, int[] subroutines, int block) {
+        AbstractInsnNode last = null;
+        for (int i = end - 1; i >= start; i--) {
+            if (insns[i].getOpcode() >= 0) {
+                last = insns[i];
+                break;
+            }
+        }
+
+        int fallThrough = (end < insns.length) ? blockOf[end] : -1;
+        if (last == null) {
+            return (fallThrough >= 0) ? new int[] { fallThrough } : new int[0];
+        }
+
+        switch (last.getType()) {
+            case AbstractInsnNode.JUMP_INSN:
+                int jumpTarget = blockOf[instructions.indexOf(((JumpInsnNode) last).label)];
+                if (last.getOpcode() == Opcodes.GOTO) {
+                    return new int[] { jumpTarget };
+                }
+                if (last.getOpcode() == Opcodes.JSR) {
+                    subroutines[block] = jumpTarget;
+                    return (fallThrough >= 0) ? new int[] { fallThrough } : new int[0];
+                }
+                return (fallThrough >= 0) ? new int[] { jumpTarget, fallThrough } : new int[] { jumpTarget };
+
+            case AbstractInsnNode.TABLESWITCH_INSN:
+                TableSwitchInsnNode tableSwitch = (TableSwitchInsnNode) last;
+                return switchTargets(blockOf, tableSwitch.dflt, tableSwitch.labels.toArray(new LabelNode[0]));
+
+            case AbstractInsnNode.LOOKUPSWITCH_INSN:
+                LookupSwitchInsnNode lookupSwitch = (LookupSwitchInsnNode) last;
+                return switchTargets(blockOf, lookupSwitch.dflt, lookupSwitch.labels.toArray(new LabelNode[0]));
+
+            default:
+                if (OpcodeEffects.endsFlow(last.getOpcode())) {
+                    return new int[0];
+                }
+                return (fallThrough >= 0) ? new int[] { fallThrough } : new int[0];
+        }
+    }
+
+    private int[] switchTargets(int[] blockOf, LabelNode dflt, LabelNode[] labels) {
+        int[] targets = new int[labels.length + 1];
+        targets[0] = blockOf[instructions.indexOf(dflt)];
+        for (int i = 0; i < labels.length; i++) {
+            targets[i + 1] = blockOf[instructions.indexOf(labels[i])];
+        }
+        return targets;
+    }
+
+    /**
+     * orders the blocks reachable from the method entry, or an exception handler, so that each block comes before
+     * its successors, other than along back edges, which lets most blocks be simulated once all their predecessors
+     * have been
+     */
+    private static int[] reversePostorder(int[][] successors, int[] subroutines, int[] handlerBlocks) {
+        int blocks = successors.length;
+        int[] postorder = new int[blocks];
+        int count = 0;
+        boolean[] visited = new boolean[blocks];
+        int[] path = new int[blocks];
+        int[] nextEdge = new int[blocks];
+
+        int[] roots = new int[handlerBlocks.length + 1];
+        System.arraycopy(handlerBlocks, 0, roots, 1, handlerBlocks.length);
+        for (int root : roots) {
+            if (visited[root]) {
+                continue;
+            }
+            visited[root] = true;
+            int depth = 0;
+            path[0] = root;
+            nextEdge[0] = 0;
+            while (depth >= 0) {
+                int b = path[depth];
+                int edge = nextEdge[depth]++;
+                int successor;
+                if (edge < successors[b].length) {
+                    successor = successors[b][edge];
+                } else if ((edge == successors[b].length) && (subroutines[b] >= 0)) {
+                    successor = subroutines[b];
+                } else {
+                    postorder[count++] = b;
+                    depth--;
+                    continue;
+                }
+
+                if (!visited[successor]) {
+                    visited[successor] = true;
+                    path[++depth] = successor;
+                    nextEdge[depth] = 0;
+                }
+            }
+        }
+
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = postorder[count - i - 1];
+        }
+        return order;
+    }
+
+    /**
+     * forwards the recorded method to the target, setting its stack at the start of each block
+     */
+    private static final class BlockEntryVisitor extends MethodVisitor {
+
+        private final ParameterStackMethodVisitor target;
+        private final Map<Label, ParameterStack.Snapshot> entries;
+
+        BlockEntryVisitor(int api, ParameterStackMethodVisitor target, Map<Label, ParameterStack.Snapshot> entries) {
+            super(api, target);
+            this.target = target;
+            this.entries = entries;
+        }
+
+        @Override
+        public void visitLabel(Label label) {
+            super.visitLabel(label);
+
+            ParameterStack.Snapshot entry = entries.get(label);
+            if (entry != null) {
+                target.enterBlock(entry);
+            }
+        }
+    }
+}
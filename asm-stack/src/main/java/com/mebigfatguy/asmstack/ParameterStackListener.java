@@ -0,0 +1,88 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import org.objectweb.asm.Label;
+
+/**
+ * receives the events of one stack simulation, so that several analyses can share a single
+ * {@link ParameterStackMethodVisitor}, and so a single pass of a ClassReader, rather than each subclassing the
+ * visitor and simulating the method again. Every method does nothing by default; a visitor only dispatches the
+ * events a listener overrides, so the others cost nothing.
+ * <p>
+ * The stack passed to an event is the visitor's own, and is only valid during the call. Push and pop events
+ * describe instructions: the values an instruction takes off the stack, and the values it leaves there. A SWAP,
+ * or the stack set up at a branch target or exception handler, is not reported.
+ */
+public interface ParameterStackListener {
+
+    /**
+     * called before an instruction takes its operands off the stack, while they are still on it
+     *
+     * @param opcode the instruction
+     * @param count the number of entries about to be popped, at offsets 0 to count - 1
+     * @param stack the stack
+     */
+    default void onPop(int opcode, int count, ParameterStack stack) {
+    }
+
+    /**
+     * called after an instruction has pushed its results, including the copies made by the DUP instructions
+     *
+     * @param opcode the instruction
+     * @param count the number of entries just pushed, at offsets 0 to count - 1
+     * @param stack the stack
+     */
+    default void onPush(int opcode, int count, ParameterStack stack) {
+    }
+
+    /**
+     * called at each invoke instruction, before its receiver and arguments are popped
+     *
+     * @param callSite the instruction, receiver and arguments, only valid during this call
+     */
+    default void onInvoke(CallSite callSite) {
+    }
+
+    /**
+     * called at each GETFIELD, PUTFIELD, GETSTATIC and PUTSTATIC, before the instruction changes the stack
+     *
+     * @param opcode the instruction
+     * @param field the field read or written
+     * @param stack the stack
+     */
+    default void onFieldAccess(int opcode, Field field, ParameterStack stack) {
+    }
+
+    /**
+     * called at each conditional or unconditional jump, and once for every target of a switch, before the
+     * instruction pops any values it tests
+     *
+     * @param opcode the instruction
+     * @param target the label branched to
+     * @param stack the stack
+     */
+    default void onBranch(int opcode, Label target, ParameterStack stack) {
+    }
+
+    /**
+     * called once the visitor has seen the end of a method
+     */
+    default void onMethodEnd() {
+    }
+}
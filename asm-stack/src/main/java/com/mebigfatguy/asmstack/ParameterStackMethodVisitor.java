@@ -0,0 +1,735 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.util.*;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.Attribute;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.TypePath;
+
+public class ParameterStackMethodVisitor extends MethodVisitor {
+
+    private static final ParameterStackListener[] NO_LISTENERS = new ParameterStackListener[0];
+
+    private ParameterStack stack;
+    private CallSite callSite;
+    private VariableTable variables;
+    private Map<Label, TypeDescriptor> handlers;
+    private Map<Label, ParameterStack.Snapshot> branchTargets;
+    private boolean reachable;
+    private boolean trackBranches;
+    private int nextParmSlot;
+    private MethodDescriptor methodDescriptor;
+    private int nextParm;
+    private ParameterStackListener[] pushListeners = NO_LISTENERS;
+    private ParameterStackListener[] popListeners = NO_LISTENERS;
+    private ParameterStackListener[] invokeListeners = NO_LISTENERS;
+    private ParameterStackListener[] fieldListeners = NO_LISTENERS;
+    private ParameterStackListener[] branchListeners = NO_LISTENERS;
+    private ParameterStackListener[] endListeners = NO_LISTENERS;
+
+    public ParameterStackMethodVisitor(final int api, boolean isStatic) {
+        this(api, isStatic, null);
+    }
+
+    public ParameterStackMethodVisitor(int api, boolean isStatic, MethodVisitor methodVisitor) {
+        this(api, isStatic, methodVisitor, new ArrayParameterStack());
+    }
+
+    /**
+     * creates a visitor that simulates the method using the given kind of stack, such as a
+     * {@link LinkedParameterStack} when the stack will be captured at many program points, or the lighter
+     * {@link TypeParameterStack} or {@link DepthParameterStack} when only the types, or only the depth, are needed
+     *
+     * @param api the asm api version implemented by this visitor
+     * @param isStatic whether the method to be visited is static
+     * @param methodVisitor the visitor to delegate to, or null
+     * @param parameterStack an empty stack to simulate the method with
+     */
+    public ParameterStackMethodVisitor(int api, boolean isStatic, MethodVisitor methodVisitor, ParameterStack parameterStack) {
+        super(api, methodVisitor);
+        nextParmSlot = isStatic ? 0 : 1;
+        stack = parameterStack;
+        callSite = new CallSite(parameterStack);
+        variables = new VariableTable();
+        handlers = new IdentityHashMap<>();
+        branchTargets = new IdentityHashMap<>();
+        reachable = true;
+        trackBranches = true;
+    }
+
+    /**
+     * readies this visitor to visit another method, keeping the storage grown for previous methods,
+     * so that one visitor can be reused for every method a thread processes.
+     *
+     * @param isStatic whether the next method to be visited is static
+     * @param methodVisitor the visitor to delegate to for the next method, or null
+     */
+    public void reset(boolean isStatic, MethodVisitor methodVisitor) {
+        mv = methodVisitor;
+        nextParmSlot = isStatic ? 0 : 1;
+        methodDescriptor = null;
+        nextParm = 0;
+        stack.clear();
+        variables.clear();
+        handlers.clear();
+        branchTargets.clear();
+        reachable = true;
+        trackBranches = true;
+    }
+
+    public ParameterStack getStack() {
+        return stack;
+    }
+
+    /**
+     * registers a listener to be told of the events of this visitor's simulation. Listeners are kept across
+     * {@link #reset(boolean, MethodVisitor)}, and are only called for the events they override.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(ParameterStackListener listener) {
+        Class<?> cls = listener.getClass();
+        if (overrides(cls, "onPush", int.class, int.class, ParameterStack.class)) {
+            pushListeners = add(pushListeners, listener);
+        }
+        if (overrides(cls, "onPop", int.class, int.class, ParameterStack.class)) {
+            popListeners = add(popListeners, listener);
+        }
+        if (overrides(cls, "onInvoke", CallSite.class)) {
+            invokeListeners = add(invokeListeners, listener);
+        }
+        if (overrides(cls, "onFieldAccess", int.class, Field.class, ParameterStack.class)) {
+            fieldListeners = add(fieldListeners, listener);
+        }
+        if (overrides(cls, "onBranch", int.class, Label.class, ParameterStack.class)) {
+            branchListeners = add(branchListeners, listener);
+        }
+        if (overrides(cls, "onMethodEnd")) {
+            endListeners = add(endListeners, listener);
+        }
+    }
+
+    public void removeListener(ParameterStackListener listener) {
+        pushListeners = remove(pushListeners, listener);
+        popListeners = remove(popListeners, listener);
+        invokeListeners = remove(invokeListeners, listener);
+        fieldListeners = remove(fieldListeners, listener);
+        branchListeners = remove(branchListeners, listener);
+        endListeners = remove(endListeners, listener);
+    }
+
+    /**
+     * gives the descriptor of the method about to be visited, so that the parameters reported by
+     * {@link #visitParameter(String, int)} get their types, and their slots, with long and double taking two.
+     * Without it every parameter is taken to be one slot of unknown type.
+     *
+     * @param descriptor the method's descriptor
+     */
+    public void setMethodDescriptor(String descriptor) {
+        methodDescriptor = MethodDescriptorCache.get(descriptor);
+    }
+
+    @Override
+    public void visitParameter(String name, int access) {
+        if ((methodDescriptor != null) && (nextParm < methodDescriptor.getArgumentCount())) {
+            TypeDescriptor type = methodDescriptor.getArgumentType(nextParm);
+            variables.add(new Variable(nextParmSlot, name, type.getDescriptor(), null, null));
+            nextParmSlot += type.getCategory();
+        } else {
+            variables.add(new Variable(nextParmSlot++, name, null, null, null));
+        }
+        nextParm++;
+        super.visitParameter(name, access);
+    }
+
+    @Override
+    public void visitCode() {
+        stack.clear();
+        reachable = true;
+        trackBranches = true;
+        super.visitCode();
+    }
+
+    /**
+     * resynchronizes the stack with the stack map frame at a branch target, as found in class files since
+     * java 7 whenever the class isn't read with SKIP_FRAMES. Entries whose simulated type agrees with the frame
+     * keep their constant and field information, others are replaced by the frame's type. A full frame also gives
+     * the types of the locals. Once a method has shown frames, stacks are no longer recorded at branches, as every
+     * target will have a frame.
+     */
+    @Override
+    public void visitFrame(int type, int numLocal, Object[] local, int numStack, Object[] frameStack) {
+        super.visitFrame(type, numLocal, local, numStack, frameStack);
+
+        trackBranches = false;
+        if (stack.size() != numStack) {
+            stack.clear();
+            for (int i = 0; i < numStack; i++) {
+                stack.push(frameType(frameStack[i]));
+            }
+        } else {
+            for (int i = 0; i < numStack; i++) {
+                int offset = numStack - i - 1;
+                if (!frameTypeAgrees(stack.typeAt(offset), frameStack[i])) {
+                    stack.replace(offset, frameType(frameStack[i]));
+                }
+            }
+        }
+        if ((type == Opcodes.F_NEW) || (type == Opcodes.F_FULL)) {
+            variables.forgetStores();
+            int slot = 0;
+            for (int i = 0; i < numLocal; i++) {
+                if (local[i] instanceof String) {
+                    variables.store(slot, Types.internObjectType((String) local[i]));
+                }
+                slot += ((local[i] == Opcodes.LONG) || (local[i] == Opcodes.DOUBLE)) ? 2 : 1;
+            }
+        }
+        reachable = true;
+    }
+
+    /**
+     * sets the stack at the start of a basic block to the one computed by a dataflow engine, such as
+     * {@link ParameterStackDataflowVisitor}, after which stacks are no longer recorded at branches.
+     */
+    void enterBlock(ParameterStack.Snapshot entry) {
+        stack.restore(entry);
+        variables.forgetStores();
+        reachable = true;
+        trackBranches = false;
+    }
+
+    @Override
+    public void visitInsn(int opcode) {
+
+        super.visitInsn(opcode);
+
+        if (OpcodeEffects.isSimple(opcode)) {
+            simulate(opcode);
+            return;
+        }
+
+        switch (opcode) {
+            case Opcodes.ICONST_M1:
+            case Opcodes.ICONST_0:
+            case Opcodes.ICONST_1:
+            case Opcodes.ICONST_2:
+            case Opcodes.ICONST_3:
+            case Opcodes.ICONST_4:
+            case Opcodes.ICONST_5:
+                stack.pushInt(Types.INT, opcode - Opcodes.ICONST_0);
+                pushed(opcode, 1);
+                break;
+
+            case Opcodes.LCONST_0:
+            case Opcodes.LCONST_1:
+                stack.pushLong(opcode - Opcodes.LCONST_0);
+                pushed(opcode, 1);
+                break;
+
+            case Opcodes.FCONST_0:
+            case Opcodes.FCONST_1:
+            case Opcodes.FCONST_2:
+                stack.pushFloat(opcode - Opcodes.FCONST_0);
+                pushed(opcode, 1);
+                break;
+
+            case Opcodes.DCONST_0:
+            case Opcodes.DCONST_1:
+                stack.pushDouble(opcode - Opcodes.DCONST_0);
+                pushed(opcode, 1);
+                break;
+
+            case Opcodes.AALOAD:
+                int componentType = Types.componentOf(stack.typeAt(1));
+                pop(opcode, 2);
+                push(opcode, componentType);
+                break;
+
+            case Opcodes.POP2:
+                pop(opcode, Types.isWide(stack.typeAt(0)) ? 1 : 2);
+                break;
+
+            case Opcodes.DUP:
+                dupX(opcode, 1, 0);
+                break;
+
+            case Opcodes.DUP_X1:
+                dupX(opcode, 1, 1);
+                break;
+
+            case Opcodes.DUP_X2:
+                dupX(opcode, 1, Types.isWide(stack.typeAt(1)) ? 1 : 2);
+                break;
+
+            case Opcodes.DUP2:
+                dupX(opcode, Types.isWide(stack.typeAt(0)) ? 1 : 2, 0);
+                break;
+
+            case Opcodes.DUP2_X1:
+                if (Types.isWide(stack.typeAt(0))) {
+                    dupX(opcode, 1, 1);
+                } else {
+                    dupX(opcode, 2, 1);
+                }
+                break;
+
+            case Opcodes.DUP2_X2:
+                if (Types.isWide(stack.typeAt(0))) {
+                    dupX(opcode, 1, Types.isWide(stack.typeAt(1)) ? 1 : 2);
+                } else {
+                    dupX(opcode, 2, Types.isWide(stack.typeAt(2)) ? 1 : 2);
+                }
+                break;
+
+            case Opcodes.SWAP:
+                stack.swap();
+                break;
+        }
+    }
+
+    @Override
+    public void visitIntInsn(int opcode, int operand) {
+
+        super.visitIntInsn(opcode, operand);
+
+        switch (opcode) {
+            case Opcodes.BIPUSH:
+                stack.pushInt(Types.BYTE, operand);
+                pushed(opcode, 1);
+                break;
+
+            case Opcodes.SIPUSH:
+                stack.pushInt(Types.SHORT, operand);
+                pushed(opcode, 1);
+                break;
+
+            case Opcodes.NEWARRAY:
+                pop(opcode, 1);
+                push(opcode, Types.arrayOf(Types.intern(SignatureUtils.typeToSignature(operand))));
+                break;
+        }
+    }
+
+    @Override
+    public void visitVarInsn(int opcode, int var) {
+
+        super.visitVarInsn(opcode, var);
+
+        if (opcode == Opcodes.ALOAD) {
+            push(opcode, variables.typeOf(var));
+        } else {
+            if (opcode == Opcodes.ASTORE) {
+                variables.store(var, stack.typeAt(0));
+            }
+            simulate(opcode);
+        }
+    }
+
+    @Override
+    public void visitTypeInsn(int opcode, String type) {
+
+        super.visitTypeInsn(opcode, type);
+
+        switch (opcode) {
+            case Opcodes.NEW:
+                push(opcode, Types.internObjectType(type));
+                break;
+
+            case Opcodes.ANEWARRAY:
+                pop(opcode, 1);
+                push(opcode, Types.arrayOf(Types.internObjectType(type)));
+                break;
+
+            case Opcodes.CHECKCAST:
+                if (stack.typeAt(0) == Types.UNKNOWN) {
+                    stack.retype(0, Types.internObjectType(type));
+                }
+                break;
+
+            case Opcodes.INSTANCEOF:
+                pop(opcode, 1);
+                push(opcode, Types.BOOLEAN);
+                break;
+        }
+    }
+
+    @Override
+    public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+
+        super.visitFieldInsn(opcode, owner, name, descriptor);
+
+        boolean read = (opcode == Opcodes.GETSTATIC) || (opcode == Opcodes.GETFIELD);
+        Field field = (read || (fieldListeners.length != 0)) ? FieldTable.intern(owner, name, descriptor) : null;
+        for (ParameterStackListener listener : fieldListeners) {
+            listener.onFieldAccess(opcode, field, stack);
+        }
+
+        switch (opcode) {
+            case Opcodes.GETSTATIC:
+                stack.pushField(field.getType(), field);
+                pushed(opcode, 1);
+                break;
+
+            case Opcodes.PUTSTATIC:
+                pop(opcode, 1);
+                break;
+
+            case Opcodes.GETFIELD:
+                pop(opcode, 1);
+                stack.pushField(field.getType(), field);
+                pushed(opcode, 1);
+                break;
+
+            case Opcodes.PUTFIELD:
+                pop(opcode, 2);
+                break;
+        }
+
+    }
+
+    @Override
+    public void visitMethodInsn(int opcodeAndSource, String owner, String name, String descriptor, boolean isInterface) {
+        if ((api < Opcodes.ASM5) && ((opcodeAndSource & Opcodes.SOURCE_DEPRECATED) == 0)) {
+            // routed through the deprecated form, which comes back here marked as such
+            super.visitMethodInsn(opcodeAndSource, owner, name, descriptor, isInterface);
+            return;
+        }
+
+        super.visitMethodInsn(opcodeAndSource, owner, name, descriptor, isInterface);
+
+        invoke(opcodeAndSource & ~Opcodes.SOURCE_MASK, owner, name, descriptor);
+    }
+
+    @Override
+    public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle, Object... bootstrapMethodArguments) {
+        super.visitInvokeDynamicInsn(name, descriptor, bootstrapMethodHandle, bootstrapMethodArguments);
+
+        invoke(Opcodes.INVOKEDYNAMIC, null, name, descriptor);
+    }
+
+    /**
+     * called at each invoke instruction, before its receiver and arguments are popped. The call site is a view
+     * over the stack, so arguments can be looked at by position without copying them, or parsing the descriptor.
+     *
+     * @param callSite the instruction, receiver and arguments, only valid during this call
+     */
+    protected void visitCallSite(CallSite callSite) {
+    }
+
+    @Override
+    public void visitJumpInsn(int opcode, Label label) {
+
+        super.visitJumpInsn(opcode, label);
+
+        for (ParameterStackListener listener : branchListeners) {
+            listener.onBranch(opcode, label, stack);
+        }
+
+        if (opcode == Opcodes.JSR) {
+            // the subroutine sees the return address, the instruction after the jsr does not
+            stack.push(Types.INT);
+            recordBranch(label);
+            stack.pop(1);
+            return;
+        }
+
+        simulate(opcode);
+        recordBranch(label);
+    }
+
+    @Override
+    public void visitLabel(Label label) {
+        super.visitLabel(label);
+
+        ParameterStack.Snapshot target = branchTargets.remove(label);
+        TypeDescriptor handlerType = handlers.remove(label);
+        if (handlerType != null) {
+            stack.clear();
+            stack.push(handlerType.getId());
+        } else if (!reachable) {
+            if (target != null) {
+                stack.restore(target);
+            } else {
+                // only reached by a backwards jump, where javac leaves the stack empty
+                stack.clear();
+            }
+            // the stores before the label aren't on the paths that reach it
+            variables.forgetStores();
+        }
+        reachable = true;
+
+        variables.expire(label);
+    }
+
+    @Override
+    public void visitLdcInsn(Object value) {
+
+        super.visitLdcInsn(value);
+
+        if (value instanceof String) {
+            stack.pushConstant(Types.STRING, value);
+        } else if (value instanceof Integer) {
+            stack.pushInt(Types.INT, ((Integer) value).intValue());
+        } else if (value instanceof Long) {
+            stack.pushLong(((Long) value).longValue());
+        } else if (value instanceof Float) {
+            stack.pushFloat(((Float) value).floatValue());
+        } else if (value instanceof Double) {
+            stack.pushDouble(((Double) value).doubleValue());
+        } else {
+            stack.pushConstant(Types.UNKNOWN, value);
+        }
+        pushed(Opcodes.LDC, 1);
+    }
+
+    @Override
+    public void visitIincInsn(int var, int increment) {
+
+        // the local variable is incremented in place, the stack is left alone
+        super.visitIincInsn(var, increment);
+    }
+
+    @Override
+    public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+        super.visitTableSwitchInsn(min, max, dflt, labels);
+
+        switched(Opcodes.TABLESWITCH, dflt, labels);
+        pop(Opcodes.TABLESWITCH, 1);
+        recordSwitch(dflt, labels);
+    }
+
+    @Override
+    public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+        super.visitLookupSwitchInsn(dflt, keys, labels);
+
+        switched(Opcodes.LOOKUPSWITCH, dflt, labels);
+        pop(Opcodes.LOOKUPSWITCH, 1);
+        recordSwitch(dflt, labels);
+    }
+
+    @Override
+    public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+        super.visitMultiANewArrayInsn(descriptor, numDimensions);
+
+        pop(Opcodes.MULTIANEWARRAY, numDimensions);
+        push(Opcodes.MULTIANEWARRAY, Types.intern(descriptor));
+    }
+
+    @Override
+    public AnnotationVisitor visitInsnAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
+        return super.visitInsnAnnotation(typeRef, typePath, descriptor, visible);
+    }
+
+    @Override
+    public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+        super.visitTryCatchBlock(start, end, handler, type);
+
+        handlers.put(handler, Types.descriptor((type == null) ? Types.THROWABLE : Types.internObjectType(type)));
+    }
+
+    @Override
+    public AnnotationVisitor visitTryCatchAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
+        return super.visitTryCatchAnnotation(typeRef, typePath, descriptor, visible);
+    }
+
+    @Override
+    public void visitLocalVariable(String name, String descriptor, String signature, Label start, Label end, int index) {
+        super.visitLocalVariable(name, descriptor, signature, start, end, index);
+
+        variables.add(new Variable(index, name, descriptor, start, end));
+    }
+
+    @Override
+    public AnnotationVisitor visitLocalVariableAnnotation(int typeRef, TypePath typePath, Label[] start, Label[] end, int[] index, String descriptor,
+                                                          boolean visible) {
+        return super.visitLocalVariableAnnotation(typeRef, typePath, start, end, index, descriptor, visible);
+    }
+
+    @Override
+    public void visitLineNumber(int line, Label start) {
+        super.visitLineNumber(line, start);
+    }
+
+    @Override
+    public void visitMaxs(int maxStack, int maxLocals) {
+        super.visitMaxs(maxStack, maxLocals);
+        variables.ensureCapacity(maxLocals);
+    }
+
+    @Override
+    public void visitEnd() {
+        super.visitEnd();
+        handlers.clear();
+        branchTargets.clear();
+
+        for (ParameterStackListener listener : endListeners) {
+            listener.onMethodEnd();
+        }
+    }
+
+    private void invoke(int opcode, String owner, String name, String descriptor) {
+        MethodDescriptor md = MethodDescriptorCache.get(descriptor);
+        callSite.set(opcode, owner, name, md);
+        visitCallSite(callSite);
+        for (ParameterStackListener listener : invokeListeners) {
+            listener.onInvoke(callSite);
+        }
+
+        pop(opcode, md.getArgumentCount() + (callSite.hasReceiver() ? 1 : 0));
+        TypeDescriptor returnType = md.getReturnType();
+        if (returnType.getCategory() != 0) {
+            push(opcode, returnType.getId());
+        }
+    }
+
+    /**
+     * applies the effect of an opcode described by {@link OpcodeEffects}
+     */
+    private void simulate(int opcode) {
+        int pops = OpcodeEffects.pops(opcode);
+        if (pops != 0) {
+            pop(opcode, pops);
+        }
+        if (OpcodeEffects.pushes(opcode) != 0) {
+            push(opcode, OpcodeEffects.type(opcode));
+        }
+        if (OpcodeEffects.endsFlow(opcode)) {
+            reachable = false;
+        }
+    }
+
+    private void push(int opcode, int type) {
+        stack.push(type);
+        pushed(opcode, 1);
+    }
+
+    private void pushed(int opcode, int count) {
+        for (ParameterStackListener listener : pushListeners) {
+            listener.onPush(opcode, count, stack);
+        }
+    }
+
+    private void pop(int opcode, int count) {
+        for (ParameterStackListener listener : popListeners) {
+            listener.onPop(opcode, count, stack);
+        }
+        stack.pop(count);
+    }
+
+    private void dupX(int opcode, int count, int depth) {
+        stack.dupX(count, depth);
+        pushed(opcode, count);
+    }
+
+    private void switched(int opcode, Label dflt, Label[] labels) {
+        for (ParameterStackListener listener : branchListeners) {
+            listener.onBranch(opcode, dflt, stack);
+            for (Label label : labels) {
+                listener.onBranch(opcode, label, stack);
+            }
+        }
+    }
+
+    private void recordBranch(Label target) {
+        if (trackBranches && !branchTargets.containsKey(target)) {
+            branchTargets.put(target, stack.snapshot());
+        }
+    }
+
+    private void recordSwitch(Label dflt, Label[] labels) {
+        if (trackBranches) {
+            ParameterStack.Snapshot snapshot = stack.snapshot();
+            branchTargets.putIfAbsent(dflt, snapshot);
+            for (Label label : labels) {
+                branchTargets.putIfAbsent(label, snapshot);
+            }
+        }
+        reachable = false;
+    }
+
+    /**
+     * whether a listener class overrides one of the interface's do nothing events
+     */
+    private static boolean overrides(Class<?> cls, String name, Class<?>... parameterTypes) {
+        try {
+            return cls.getMethod(name, parameterTypes).getDeclaringClass() != ParameterStackListener.class;
+        } catch (NoSuchMethodException e) {
+            return true;
+        }
+    }
+
+    private static ParameterStackListener[] add(ParameterStackListener[] listeners, ParameterStackListener listener) {
+        ParameterStackListener[] added = Arrays.copyOf(listeners, listeners.length + 1);
+        added[listeners.length] = listener;
+        return added;
+    }
+
+    private static ParameterStackListener[] remove(ParameterStackListener[] listeners, ParameterStackListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                if (listeners.length == 1) {
+                    return NO_LISTENERS;
+                }
+                ParameterStackListener[] removed = new ParameterStackListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, removed, 0, i);
+                System.arraycopy(listeners, i + 1, removed, i, listeners.length - i - 1);
+                return removed;
+            }
+        }
+        return listeners;
+    }
+
+    private static int frameType(Object frameType) {
+        if (frameType == Opcodes.INTEGER) {
+            return Types.INT;
+        } else if (frameType == Opcodes.FLOAT) {
+            return Types.FLOAT;
+        } else if (frameType == Opcodes.LONG) {
+            return Types.LONG;
+        } else if (frameType == Opcodes.DOUBLE) {
+            return Types.DOUBLE;
+        } else if (frameType instanceof String) {
+            return Types.internObjectType((String) frameType);
+        }
+
+        return Types.UNKNOWN;
+    }
+
+    private static boolean frameTypeAgrees(int type, Object frameType) {
+        int sort = Types.descriptor(type).getSort();
+        if (frameType == Opcodes.INTEGER) {
+            return (sort == Type.INT) || (sort == Type.BOOLEAN) || (sort == Type.BYTE) || (sort == Type.CHAR) || (sort == Type.SHORT);
+        } else if ((frameType == Opcodes.FLOAT) || (frameType == Opcodes.LONG) || (frameType == Opcodes.DOUBLE)) {
+            return type == frameType(frameType);
+        } else if (frameType instanceof String) {
+            return type == Types.internObjectType((String) frameType);
+        } else if ((frameType == Opcodes.NULL) || (frameType == Opcodes.UNINITIALIZED_THIS) || (frameType instanceof Label)) {
+            return (sort == Type.OBJECT) || (sort == Type.ARRAY);
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.util.function.Supplier;
+
+import org.objectweb.asm.MethodVisitor;
+
+/**
+ * hands out one {@link ParameterStackMethodVisitor} per thread, reset for the method about to be visited, so that
+ * class level drivers don't have to allocate a visitor, and its stack, for every method.
+ *
+ * @param <T> the type of method visitor pooled
+ */
+public class ParameterStackMethodVisitorPool<T extends ParameterStackMethodVisitor> {
+
+    private final Supplier<T> factory;
+    private final ThreadLocal<T> visitors;
+
+    public ParameterStackMethodVisitorPool(Supplier<T> factory) {
+        this.factory = factory;
+        visitors = ThreadLocal.withInitial(factory);
+    }
+
+    /**
+     * returns this thread's visitor, reset to visit a new method. The visitor must not be in use by an
+     * unfinished method on this thread.
+     *
+     * @param isStatic whether the method to be visited is static
+     * @param methodVisitor the visitor to delegate to, or null
+     * @return the reset visitor for this thread
+     */
+    public T acquire(boolean isStatic, MethodVisitor methodVisitor) {
+        T visitor = visitors.get();
+        if (visitor == null) {
+            // borrowed and not yet released
+            visitor = factory.get();
+            visitors.set(visitor);
+        }
+        visitor.reset(isStatic, methodVisitor);
+        return visitor;
+    }
+
+    /**
+     * takes this thread's visitor out of the pool, reset to visit a new method, until it is handed back by
+     * {@link #release(ParameterStackMethodVisitor)}. While it is out, such as when visiting one method leads to
+     * analyzing another class on the same thread, the thread is given new visitors, so the one in use is never reset
+     * under it.
+     *
+     * @param isStatic whether the method to be visited is static
+     * @param methodVisitor the visitor to delegate to, or null
+     * @return a reset visitor, only used by the caller until released
+     */
+    public T borrow(boolean isStatic, MethodVisitor methodVisitor) {
+        T visitor = visitors.get();
+        if (visitor == null) {
+            visitor = factory.get();
+        } else {
+            visitors.set(null);
+        }
+        visitor.reset(isStatic, methodVisitor);
+        return visitor;
+    }
+
+    /**
+     * hands a borrowed visitor back to this thread's pool, once the method it visited has ended
+     *
+     * @param visitor the visitor returned by {@link #borrow(boolean, MethodVisitor)}
+     */
+    public void release(T visitor) {
+        visitors.set(visitor);
+    }
+
+    /**
+     * drops this thread's visitor, such as when a worker thread is done analyzing
+     */
+    public void remove() {
+        visitors.remove();
+    }
+}
@@ -0,0 +1,432 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * a persistent cache of the results of analyzing classes, so that classes seen by an earlier run, such as those of
+ * the same third party jars on every build, skip the simulation entirely. Entries are keyed by a SHA-256 of the class
+ * bytes, the name of the analysis mode, and {@link #ANALYSIS_VERSION}, and stored one file per class, in a compact
+ * binary format that writes each distinct string once. When the files grow past the size limit, the least recently
+ * used are deleted; use is recorded in the files' modification times, so it survives from one run to the next,
+ * though a file is only touched again once its time is more than {@link #TOUCH_INTERVAL_MILLIS} old.
+ * <p>
+ * The cache is safe to share between threads, and between processes, as entries are written to a temporary file and
+ * moved into place. Temporary files left by a process that died while writing are deleted when the cache is
+ * opened, once they are older than {@link #STALE_TEMP_MILLIS}. It never fails an analysis: unreadable entries are
+ * dropped and treated as misses, and entries that can't be written are simply not cached.
+ */
+public class ResultCache {
+
+    /**
+     * the version of the simulation and of the results it produces, to be raised whenever either changes, so that
+     * results cached by earlier versions are no longer found
+     */
+    public static final int ANALYSIS_VERSION = 1;
+
+    /**
+     * how old a file's modification time must be before a hit records the use again
+     */
+    public static final long TOUCH_INTERVAL_MILLIS = 60L * 60L * 1000L;
+
+    /**
+     * how old a temporary file must be to be taken as abandoned, rather than still being written by another process
+     */
+    public static final long STALE_TEMP_MILLIS = 60L * 60L * 1000L;
+
+    private static final int MAGIC = 0x41535243;
+    private static final String SUFFIX = ".asrc";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    private final Path directory;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * opens, or creates, a cache in a directory, finding the entries left by earlier runs, and deleting the
+     * abandoned temporary files
+     *
+     * @param directory the directory holding the cache files
+     * @param maxBytes the size the cache files may take, beyond which the least recently used are deleted
+     * @throws IOException if the directory can't be created or listed
+     */
+    public ResultCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+
+        List<Path> files;
+        List<Path> temps;
+        try (Stream<Path> paths = Files.walk(directory, 2)) {
+            Map<String, List<Path>> bySuffix = paths.collect(Collectors.groupingBy(p -> {
+                String name = p.getFileName().toString();
+                return name.endsWith(SUFFIX) ? SUFFIX : name.endsWith(TEMP_SUFFIX) ? TEMP_SUFFIX : "";
+            }));
+            files = bySuffix.getOrDefault(SUFFIX, new ArrayList<>());
+            temps = bySuffix.getOrDefault(TEMP_SUFFIX, Collections.emptyList());
+        }
+        long staleBefore = System.currentTimeMillis() - STALE_TEMP_MILLIS;
+        for (Path temp : temps) {
+            if (Files.getLastModifiedTime(temp).toMillis() < staleBefore) {
+                Files.deleteIfExists(temp);
+            }
+        }
+        Map<Path, FileTime> lastUsed = new HashMap<>();
+        for (Path file : files) {
+            lastUsed.put(file, Files.getLastModifiedTime(file));
+        }
+        files.sort((a, b) -> lastUsed.get(a).compareTo(lastUsed.get(b)));
+        List<String> evicted;
+        synchronized (entries) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long size = Files.size(file);
+                entries.put(name.substring(0, name.length() - SUFFIX.length()), Long.valueOf(size));
+                totalBytes += size;
+            }
+            evicted = evict();
+        }
+        delete(evicted);
+    }
+
+    /**
+     * returns the cached results for a class, or analyzes it, and caches the results, if they aren't cached
+     *
+     * @param classBytes the class file
+     * @param mode how much of the stack to simulate
+     * @return the result of each method with code
+     */
+    public List<MethodResult> analyze(byte[] classBytes, AnalysisMode mode) {
+        String key = key(classBytes, mode);
+        List<MethodResult> results = get(key);
+        if (results == null) {
+            results = ParameterStackClassVisitor.analyzeClass(classBytes, mode);
+            put(key, results);
+        }
+        return results;
+    }
+
+    /**
+     * @param classBytes the class file
+     * @param mode how much of the stack was simulated
+     * @return the cached results for the class, or null if they aren't cached
+     */
+    public List<MethodResult> get(byte[] classBytes, AnalysisMode mode) {
+        return get(key(classBytes, mode));
+    }
+
+    /**
+     * @param classBytes the class file
+     * @param mode how much of the stack was simulated
+     * @param results the result of each method with code
+     */
+    public void put(byte[] classBytes, AnalysisMode mode, List<MethodResult> results) {
+        put(key(classBytes, mode), results);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the size of the cache files
+     */
+    public long getSize() {
+        synchronized (entries) {
+            return totalBytes;
+        }
+    }
+
+    public long getMaxSize() {
+        return maxBytes;
+    }
+
+    private List<MethodResult> get(String key) {
+        boolean known;
+        synchronized (entries) {
+            known = entries.get(key) != null;
+        }
+        if (!known) {
+            misses.increment();
+            return null;
+        }
+
+        Path file = file(key);
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            List<MethodResult> results = readResults(dis);
+            touch(file);
+            hits.increment();
+            return results;
+        } catch (IOException | RuntimeException e) {
+            // evicted by another process, or corrupt, either way it's a miss
+            remove(key);
+            misses.increment();
+            return null;
+        }
+    }
+
+    private void put(String key, List<MethodResult> results) {
+        Path file = file(key);
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), key, TEMP_SUFFIX);
+            try {
+                try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    writeResults(dos, results);
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+
+            long size = Files.size(file);
+            List<String> evicted;
+            synchronized (entries) {
+                Long previous = entries.put(key, Long.valueOf(size));
+                totalBytes += size - ((previous == null) ? 0 : previous.longValue());
+                evicted = evict();
+            }
+            delete(evicted);
+        } catch (IOException e) {
+            // not caching a result is only a missed opportunity
+        }
+    }
+
+    /**
+     * records the use of an entry, unless it was recorded recently enough for the order of eviction to hardly change
+     */
+    private static void touch(Path file) throws IOException {
+        long now = System.currentTimeMillis();
+        if (Files.getLastModifiedTime(file).toMillis() < (now - TOUCH_INTERVAL_MILLIS)) {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(now));
+        }
+    }
+
+    private void remove(String key) {
+        synchronized (entries) {
+            Long size = entries.remove(key);
+            if (size != null) {
+                totalBytes -= size.longValue();
+            }
+        }
+        try {
+            Files.deleteIfExists(file(key));
+        } catch (IOException e) {
+            // left for a later eviction
+        }
+    }
+
+    /**
+     * drops the least recently used entries until the cache fits in its size, called holding the entries lock
+     *
+     * @return the keys of the entries dropped, whose files are to be deleted once the lock is released
+     */
+    private List<String> evict() {
+        List<String> evicted = Collections.emptyList();
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while ((totalBytes > maxBytes) && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            it.remove();
+            totalBytes -= eldest.getValue().longValue();
+            if (evicted.isEmpty()) {
+                evicted = new ArrayList<>();
+            }
+            evicted.add(eldest.getKey());
+        }
+        return evicted;
+    }
+
+    /**
+     * deletes the files of evicted entries, outside the entries lock. Should an entry be put again in between, its
+     * new file may be deleted too, which a later get finds to be a miss.
+     */
+    private void delete(List<String> evicted) {
+        for (String key : evicted) {
+            try {
+                Files.deleteIfExists(file(key));
+            } catch (IOException e) {
+                // found again, and evicted again, the next time the cache is opened
+            }
+        }
+    }
+
+    private Path file(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key + SUFFIX);
+    }
+
+    private static String key(byte[] classBytes, AnalysisMode mode) {
+        MessageDigest digest = digests.get();
+        digest.update(classBytes);
+        digest.update(mode.name().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) ANALYSIS_VERSION);
+        byte[] hash = digest.digest();
+
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = HEX[(hash[i] >> 4) & 0x0F];
+            hex[(i * 2) + 1] = HEX[hash[i] & 0x0F];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * writes the results as a table of the distinct strings, followed by the methods and their call sites, which
+     * refer to strings by their index, with all counts and indices as variable length ints
+     */
+    static void writeResults(DataOutputStream dos, List<MethodResult> results) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        for (MethodResult result : results) {
+            index(strings, result.getClassName());
+            index(strings, result.getMethodName());
+            index(strings, result.getDescriptor());
+            for (CallSiteResult callSite : result.getCallSites()) {
+                index(strings, callSite.getOwner());
+                index(strings, callSite.getName());
+                index(strings, callSite.getDescriptor());
+            }
+        }
+
+        dos.writeInt(MAGIC);
+        writeVarLong(dos, ANALYSIS_VERSION);
+        writeVarLong(dos, strings.size());
+        for (String s : strings.keySet()) {
+            dos.writeUTF(s);
+        }
+
+        writeVarLong(dos, results.size());
+        for (MethodResult result : results) {
+            writeVarLong(dos, strings.get(result.getClassName()).intValue());
+            writeVarLong(dos, strings.get(result.getMethodName()).intValue());
+            writeVarLong(dos, strings.get(result.getDescriptor()).intValue());
+            writeVarLong(dos, result.getAccess());
+            writeVarLong(dos, result.getMaxDepth());
+            writeVarLong(dos, result.getCallSiteCount());
+            for (CallSiteResult callSite : result.getCallSites()) {
+                writeVarLong(dos, callSite.getOpcode());
+                // 0 stands for the null owner of invokedynamic
+                writeVarLong(dos, (callSite.getOwner() == null) ? 0 : strings.get(callSite.getOwner()).intValue() + 1);
+                writeVarLong(dos, strings.get(callSite.getName()).intValue());
+                writeVarLong(dos, strings.get(callSite.getDescriptor()).intValue());
+                writeVarLong(dos, callSite.getConstantArguments());
+            }
+        }
+    }
+
+    static List<MethodResult> readResults(DataInputStream dis) throws IOException {
+        if ((dis.readInt() != MAGIC) || (readVarLong(dis) != ANALYSIS_VERSION)) {
+            throw new IOException("Not a result cache entry of version " + ANALYSIS_VERSION);
+        }
+
+        String[] strings = new String[readCount(dis)];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = dis.readUTF();
+        }
+
+        int methodCount = readCount(dis);
+        List<MethodResult> results = new ArrayList<>(methodCount);
+        for (int m = 0; m < methodCount; m++) {
+            String className = strings[readCount(dis)];
+            String methodName = strings[readCount(dis)];
+            String descriptor = strings[readCount(dis)];
+            int access = (int) readVarLong(dis);
+            int maxDepth = (int) readVarLong(dis);
+            int callSiteCount = readCount(dis);
+            List<CallSiteResult> callSites = (callSiteCount == 0) ? Collections.emptyList() : new ArrayList<>(callSiteCount);
+            for (int c = 0; c < callSiteCount; c++) {
+                int opcode = (int) readVarLong(dis);
+                int owner = readCount(dis);
+                callSites.add(new CallSiteResult(opcode, (owner == 0) ? null : strings[owner - 1], strings[readCount(dis)], strings[readCount(dis)],
+                        readVarLong(dis)));
+            }
+            results.add(new MethodResult(className, methodName, descriptor, access, maxDepth, callSites));
+        }
+        return results;
+    }
+
+    private static void index(Map<String, Integer> strings, String s) {
+        if ((s != null) && !strings.containsKey(s)) {
+            strings.put(s, Integer.valueOf(strings.size()));
+        }
+    }
+
+    private static void writeVarLong(DataOutputStream dos, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            dos.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        dos.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream dis) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = dis.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length int");
+    }
+
+    private static int readCount(DataInputStream dis) throws IOException {
+        long count = readVarLong(dis);
+        if ((count < 0) || (count > Integer.MAX_VALUE)) {
+            throw new IOException("Bad count " + count);
+        }
+        return (int) count;
+    }
+}
@@ -29,7 +29,7 @@ public class SignatureUtils {
     private static final char CLASS_PREFIX = 'L';
     private static final String CLASS_SUFFIX = ";";
 
-    static List<String> getParameterSignatures(String descriptor) {
+    static List<TypeDescriptor> getParameterTypes(String descriptor) {
         int start = descriptor.indexOf('(') + 1;
         int limit = descriptor.lastIndexOf(')');
 
@@ -37,23 +37,25 @@ public class SignatureUtils {
             return Collections.emptyList();
         }
 
-        List<String> parmSignatures = new ArrayList<>();
-        for (int i = start; i < limit; i++) {
-            char prefix = descriptor.charAt(i);
-            if ((prefix == ARRAY_PREFIX) || (prefix == CLASS_PREFIX)) {
-                int semiPos = descriptor.indexOf(CLASS_SUFFIX, i + 1);
-                parmSignatures.add(descriptor.substring(i, i = semiPos + 1));
-            } else {
-                parmSignatures.add(descriptor.substring(i, ++i));
+        List<TypeDescriptor> parmTypes = new ArrayList<>();
+        int i = start;
+        while (i < limit) {
+            int sigStart = i;
+            while (descriptor.charAt(i) == ARRAY_PREFIX) {
+                i++;
             }
+            if (descriptor.charAt(i) == CLASS_PREFIX) {
+                i = descriptor.indexOf(CLASS_SUFFIX, i + 1);
+            }
+            parmTypes.add(Types.descriptor(Types.intern(descriptor, sigStart, ++i)));
         }
 
-        return parmSignatures;
+        return parmTypes;
     }
 
-    static String getReturnSignature(String descriptor) {
+    static TypeDescriptor getReturnType(String descriptor) {
         int start = descriptor.indexOf(')') + 1;
-        return descriptor.substring(start);
+        return Types.descriptor(Types.intern(descriptor, start, descriptor.length()));
     }
 
     static String typeToSignature(int type) {
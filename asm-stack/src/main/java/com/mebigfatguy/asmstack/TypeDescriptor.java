@@ -0,0 +1,155 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import org.objectweb.asm.Type;
+
+/**
+ * a canonical, immutable description of a field type descriptor. There is only ever one instance per
+ * descriptor in the process, so instances can be compared by identity.
+ */
+public final class TypeDescriptor {
+
+    private final int id;
+    private final String descriptor;
+    private final int sort;
+    private final int category;
+    private final TypeDescriptor componentType;
+    private final Parameter parameter;
+    private int arrayType = Types.UNKNOWN;
+
+    TypeDescriptor(int id, String descriptor, TypeDescriptor componentType) {
+        this.id = id;
+        this.descriptor = descriptor;
+
+        if ((descriptor != null) && (descriptor.length() > 1) && (descriptor.charAt(0) == '[')) {
+            sort = Type.ARRAY;
+            category = 1;
+            this.componentType = componentType;
+        } else {
+            sort = primitiveSort(descriptor);
+            category = (sort == Type.VOID) ? 0 : (((sort == Type.LONG) || (sort == Type.DOUBLE)) ? 2 : 1);
+            this.componentType = null;
+        }
+        parameter = new Parameter(this);
+    }
+
+    /**
+     * returns the shared instance for a field type descriptor, such as I, Ljava/lang/String; or [[J
+     *
+     * @param descriptor the type descriptor, or null for an unknown type
+     * @return the canonical type descriptor
+     */
+    public static TypeDescriptor of(String descriptor) {
+        return Types.descriptor(Types.intern(descriptor));
+    }
+
+    int getId() {
+        return id;
+    }
+
+    /**
+     * @return the shared parameter for a value of this type that holds no constant and wasn't loaded from a field
+     */
+    Parameter getParameter() {
+        return parameter;
+    }
+
+    public String getDescriptor() {
+        return descriptor;
+    }
+
+    /**
+     * @return the sort of this type, using the constants of {@link org.objectweb.asm.Type}
+     */
+    public int getSort() {
+        return sort;
+    }
+
+    /**
+     * @return the number of stack slots this type occupies, 2 for long and double, 0 for void, otherwise 1
+     */
+    public int getCategory() {
+        return category;
+    }
+
+    public boolean isWide() {
+        return category == 2;
+    }
+
+    public boolean isArray() {
+        return componentType != null;
+    }
+
+    /**
+     * @return the type of the array's elements with one dimension removed, such as [I for [[I, or null if not an array
+     */
+    public TypeDescriptor getComponentType() {
+        return componentType;
+    }
+
+    /**
+     * @return the code of the array type whose components are of this type, or {@link Types#UNKNOWN} until it is
+     *         first asked for through {@link Types#arrayOf(int)}
+     */
+    int getArrayType() {
+        return arrayType;
+    }
+
+    /**
+     * remembers the code of the array of this type. Threads may race to set it, but they all set the same code, so
+     * the field needn't be volatile, a thread that misses the write just looks the array type up again.
+     */
+    void setArrayType(int arrayType) {
+        this.arrayType = arrayType;
+    }
+
+    @Override
+    public String toString() {
+        return descriptor;
+    }
+
+    private static int primitiveSort(String descriptor) {
+        if ((descriptor == null) || (descriptor.length() != 1)) {
+            return Type.OBJECT;
+        }
+
+        switch (descriptor.charAt(0)) {
+            case 'V':
+                return Type.VOID;
+            case 'Z':
+                return Type.BOOLEAN;
+            case 'C':
+                return Type.CHAR;
+            case 'B':
+                return Type.BYTE;
+            case 'S':
+                return Type.SHORT;
+            case 'I':
+                return Type.INT;
+            case 'F':
+                return Type.FLOAT;
+            case 'J':
+                return Type.LONG;
+            case 'D':
+                return Type.DOUBLE;
+            default:
+                return Type.OBJECT;
+        }
+    }
+}
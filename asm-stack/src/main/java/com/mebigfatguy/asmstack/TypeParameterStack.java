@@ -0,0 +1,204 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.util.Arrays;
+
+/**
+ * a lightweight parameter stack that only keeps the type code of each entry, for checks that need the types on
+ * the stack but not constant values or fields. Pushing and popping never allocate, and peek and pop hand out the
+ * shared parameter of the entry's type.
+ */
+public class TypeParameterStack extends ParameterStack {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] types = new int[INITIAL_CAPACITY];
+    private int size;
+
+    @Override
+    void push(int type) {
+        if (size == types.length) {
+            types = Arrays.copyOf(types, size * 2);
+        }
+        types[size++] = type;
+    }
+
+    @Override
+    void pushInt(int type, int value) {
+        push(type);
+    }
+
+    @Override
+    void pushLong(long value) {
+        push(Types.LONG);
+    }
+
+    @Override
+    void pushFloat(float value) {
+        push(Types.FLOAT);
+    }
+
+    @Override
+    void pushDouble(double value) {
+        push(Types.DOUBLE);
+    }
+
+    @Override
+    void pushConstant(int type, Object value) {
+        push(type);
+    }
+
+    @Override
+    void pushField(int type, Field field) {
+        push(type);
+    }
+
+    @Override
+    void pushEntry(int type, byte valueKind, long primitiveValue, Object objectValue, Field field) {
+        push(type);
+    }
+
+    @Override
+    public Parameter pop() {
+        Parameter p = peek(0);
+        size--;
+        return p;
+    }
+
+    @Override
+    public void pop(int numItems) {
+        if (numItems > size) {
+            throw new IndexOutOfBoundsException("Popping " + numItems + " items from a stack of " + size);
+        }
+        size -= numItems;
+    }
+
+    @Override
+    public Parameter peek(int offset) {
+        return Types.descriptor(typeAt(offset)).getParameter();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    int typeAt(int offset) {
+        if ((offset < 0) || (offset >= size)) {
+            throw new IndexOutOfBoundsException("Stack offset " + offset + " is out of bounds for a stack of " + size);
+        }
+        return types[size - offset - 1];
+    }
+
+    @Override
+    void retype(int offset, int type) {
+        types[size - offset - 1] = type;
+    }
+
+    @Override
+    void replace(int offset, int type) {
+        types[size - offset - 1] = type;
+    }
+
+    @Override
+    void dupX(int count, int depth) {
+        if ((size + count) > types.length) {
+            types = Arrays.copyOf(types, Math.max(size + count, size * 2));
+        }
+        int insertAt = size - count - depth;
+        System.arraycopy(types, insertAt, types, insertAt + count, count + depth);
+        System.arraycopy(types, size, types, insertAt, count);
+        size += count;
+    }
+
+    @Override
+    void swap() {
+        int top = types[size - 1];
+        types[size - 1] = types[size - 2];
+        types[size - 2] = top;
+    }
+
+    @Override
+    Snapshot snapshot() {
+        if (size == 0) {
+            return TypeSnapshot.EMPTY;
+        }
+        return new TypeSnapshot(Arrays.copyOf(types, size));
+    }
+
+    @Override
+    void restore(Snapshot snapshot) {
+        clear();
+        if (snapshot instanceof TypeSnapshot) {
+            int[] snapshotTypes = ((TypeSnapshot) snapshot).types;
+            if (snapshotTypes.length > types.length) {
+                types = Arrays.copyOf(snapshotTypes, Math.max(snapshotTypes.length, INITIAL_CAPACITY));
+            } else {
+                System.arraycopy(snapshotTypes, 0, types, 0, snapshotTypes.length);
+            }
+            size = snapshotTypes.length;
+        } else {
+            snapshot.pushInto(this);
+        }
+    }
+
+    @Override
+    void clear() {
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(Types.signature(types[i]));
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * an immutable copy of the types on the stack at one program point
+     */
+    static final class TypeSnapshot implements Snapshot {
+
+        static final TypeSnapshot EMPTY = new TypeSnapshot(new int[0]);
+
+        private final int[] types;
+
+        private TypeSnapshot(int[] types) {
+            this.types = types;
+        }
+
+        @Override
+        public int size() {
+            return types.length;
+        }
+
+        @Override
+        public void pushInto(ParameterStack stack) {
+            for (int type : types) {
+                stack.pushEntry(type, NO_VALUE, 0, null, null);
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.objectweb.asm.Type;
+
+/**
+ * a process wide table of {@link TypeDescriptor}s, that maps each descriptor to a small integer code, so that the
+ * parameter stack can hold types in an int array. Codes are shared by all threads, and are never reused or
+ * released: the table only grows, by one descriptor, a couple of map entries and a slot, about 200 bytes, for
+ * each distinct type seen. That is bounded by the types named by the classes analyzed, typically a few tens of
+ * thousands for a whole JDK and its libraries, but a process that goes on analyzing ever new, say generated,
+ * classes holds on to all of their types.
+ */
+final class Types {
+
+    static final int UNKNOWN = 0;
+    static final int INT = 1;
+    static final int LONG = 2;
+    static final int FLOAT = 3;
+    static final int DOUBLE = 4;
+    static final int BYTE = 5;
+    static final int CHAR = 6;
+    static final int SHORT = 7;
+    static final int BOOLEAN = 8;
+    static final int VOID = 9;
+    static final int OBJECT = 10;
+    static final int STRING = 11;
+    static final int THROWABLE = 12;
+
+    private static final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Integer> internalNames = new ConcurrentHashMap<>();
+    private static volatile TypeDescriptor[] descriptors = new TypeDescriptor[256];
+    private static int nextCode = 0;
+
+    static {
+        register(null);
+        register("I");
+        register("J");
+        register("F");
+        register("D");
+        register("B");
+        register("C");
+        register("S");
+        register("Z");
+        register("V");
+        register("Ljava/lang/Object;");
+        register("Ljava/lang/String;");
+        register("Ljava/lang/Throwable;");
+    }
+
+    private Types() {
+    }
+
+    static int intern(String descriptor) {
+        if (descriptor == null) {
+            return UNKNOWN;
+        }
+
+        Integer code = codes.get(descriptor);
+        if (code != null) {
+            return code.intValue();
+        }
+
+        return register(descriptor);
+    }
+
+    /**
+     * interns the descriptor found between start and end of a larger string, such as a method descriptor,
+     * without building a substring for the primitive types.
+     */
+    static int intern(String text, int start, int end) {
+        if ((end - start) == 1) {
+            int code = primitive(text.charAt(start));
+            if (code != UNKNOWN) {
+                return code;
+            }
+        }
+
+        return intern(text.substring(start, end));
+    }
+
+    /**
+     * interns the type named by an internal name, or array descriptor, as used by NEW, ANEWARRAY, CHECKCAST and
+     * exception handlers.
+     */
+    static int internObjectType(String internalName) {
+        if (internalName == null) {
+            return UNKNOWN;
+        }
+
+        Integer code = internalNames.get(internalName);
+        if (code != null) {
+            return code.intValue();
+        }
+
+        int newCode = intern((internalName.charAt(0) == '[') ? internalName : ('L' + internalName + ';'));
+        internalNames.putIfAbsent(internalName, Integer.valueOf(newCode));
+        return newCode;
+    }
+
+    /**
+     * returns the type of an array of the given type, as pushed by NEWARRAY and ANEWARRAY. The array type is
+     * remembered by the component's descriptor, so only the first array of each type builds a descriptor string.
+     */
+    static int arrayOf(int code) {
+        if (code == UNKNOWN) {
+            return UNKNOWN;
+        }
+
+        TypeDescriptor component = descriptors[code];
+        int arrayCode = component.getArrayType();
+        if (arrayCode == UNKNOWN) {
+            arrayCode = intern('[' + component.getDescriptor());
+            component.setArrayType(arrayCode);
+        }
+        return arrayCode;
+    }
+
+    /**
+     * returns the type of an element of an array of the given type, as pushed by AALOAD, or Object when the array's
+     * type isn't known
+     */
+    static int componentOf(int code) {
+        TypeDescriptor array = descriptors[code];
+        return array.isArray() ? array.getComponentType().getId() : OBJECT;
+    }
+
+    /**
+     * returns the type of a value that may have either type, as at the join of two paths. The int like types
+     * widen to int, references of differing types to Object, where an unknown reference, such as null, takes the
+     * other's type.
+     */
+    static int merge(int a, int b) {
+        if (a == b) {
+            return a;
+        }
+
+        TypeDescriptor da = descriptors[a];
+        TypeDescriptor db = descriptors[b];
+        if (isIntLike(da.getSort()) && isIntLike(db.getSort())) {
+            return INT;
+        }
+        if (isReference(da.getSort()) && isReference(db.getSort())) {
+            if (a == UNKNOWN) {
+                return b;
+            }
+            return (b == UNKNOWN) ? a : OBJECT;
+        }
+        return UNKNOWN;
+    }
+
+    static TypeDescriptor descriptor(int code) {
+        return descriptors[code];
+    }
+
+    static String signature(int code) {
+        return descriptors[code].getDescriptor();
+    }
+
+    static boolean isWide(int code) {
+        return descriptors[code].isWide();
+    }
+
+    private static boolean isIntLike(int sort) {
+        return (sort == Type.INT) || (sort == Type.BOOLEAN) || (sort == Type.BYTE) || (sort == Type.CHAR) || (sort == Type.SHORT);
+    }
+
+    private static boolean isReference(int sort) {
+        return (sort == Type.OBJECT) || (sort == Type.ARRAY);
+    }
+
+    private static int primitive(char c) {
+        switch (c) {
+            case 'I':
+                return INT;
+            case 'J':
+                return LONG;
+            case 'F':
+                return FLOAT;
+            case 'D':
+                return DOUBLE;
+            case 'B':
+                return BYTE;
+            case 'C':
+                return CHAR;
+            case 'S':
+                return SHORT;
+            case 'Z':
+                return BOOLEAN;
+            case 'V':
+                return VOID;
+            default:
+                return UNKNOWN;
+        }
+    }
+
+    private static synchronized int register(String descriptor) {
+        if (descriptor != null) {
+            Integer code = codes.get(descriptor);
+            if (code != null) {
+                return code.intValue();
+            }
+        }
+
+        TypeDescriptor componentType = null;
+        if ((descriptor != null) && (descriptor.length() > 1) && (descriptor.charAt(0) == '[')) {
+            componentType = descriptor(intern(descriptor.substring(1)));
+        }
+
+        int newCode = nextCode++;
+        TypeDescriptor[] descs = descriptors;
+        if (newCode >= descs.length) {
+            descs = Arrays.copyOf(descs, descs.length * 2);
+        }
+        descs[newCode] = new TypeDescriptor(newCode, descriptor, componentType);
+        descriptors = descs;
+        if (descriptor != null) {
+            codes.put(descriptor, Integer.valueOf(newCode));
+        }
+        return newCode;
+    }
+}
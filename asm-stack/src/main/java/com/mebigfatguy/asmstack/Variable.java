@@ -25,6 +25,8 @@ public class Variable {
     private String signature;
     private Label start;
     private Label end;
+    private int type;
+    private Variable nextEnding;
 
     public Variable(int variableSlot, String variableName, String variableSignature, Label variableStart, Label variableEnd) {
         slot = variableSlot;
@@ -32,6 +34,7 @@ public class Variable {
         signature = variableSignature;
         start = variableStart;
         end = variableEnd;
+        type = Types.intern(variableSignature);
     }
 
     public int getSlot() {
@@ -49,4 +52,16 @@ public class Variable {
     public Label getStart() { return start; }
 
     public Label getEnd() { return end; }
+
+    int getType() {
+        return type;
+    }
+
+    Variable getNextEnding() {
+        return nextEnding;
+    }
+
+    void setNextEnding(Variable v) {
+        nextEnding = v;
+    }
 }
@@ -0,0 +1,156 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.objectweb.asm.Label;
+
+/**
+ * the local variables of a method indexed by slot. A slot may hold several variables with different scopes,
+ * and the most recently declared one that has not yet expired is the one visible at that slot. Variables are also
+ * indexed by the label that ends their scope, so expiring them at a label only touches the variables ending there.
+ * <p>
+ * As a class reader only reports the local variable table after the code, a slot also remembers the type of the
+ * value last stored in it, which is what a load sees when no typed variable is visible.
+ */
+class VariableTable {
+
+    private static final int INITIAL_SLOTS = 16;
+
+    private Variable[] visible = new Variable[INITIAL_SLOTS];
+    private Variable[][] scoped = new Variable[INITIAL_SLOTS][];
+    private int[] scopedCounts = new int[INITIAL_SLOTS];
+    private int[] storedTypes = new int[INITIAL_SLOTS];
+    private int maxSlot = -1;
+    private Map<Label, Variable> endings = new IdentityHashMap<>();
+
+    Variable get(int slot) {
+        return (slot < visible.length) ? visible[slot] : null;
+    }
+
+    /**
+     * @return the type of the value in a slot, the declared type of the visible variable when it has one, otherwise
+     *         the type of the value last stored there
+     */
+    int typeOf(int slot) {
+        if (slot >= visible.length) {
+            return Types.UNKNOWN;
+        }
+
+        Variable v = visible[slot];
+        return ((v != null) && (v.getType() != Types.UNKNOWN)) ? v.getType() : storedTypes[slot];
+    }
+
+    void store(int slot, int type) {
+        ensureCapacity(slot + 1);
+        storedTypes[slot] = type;
+        maxSlot = Math.max(maxSlot, slot);
+    }
+
+    /**
+     * forgets the types stored in the slots, where the code may be reached from elsewhere than the code before it
+     */
+    void forgetStores() {
+        Arrays.fill(storedTypes, 0, maxSlot + 1, Types.UNKNOWN);
+    }
+
+    void add(Variable v) {
+        int slot = v.getSlot();
+        ensureCapacity(slot + 1);
+
+        Variable[] entries = scoped[slot];
+        int count = scopedCounts[slot];
+        if (entries == null) {
+            entries = new Variable[2];
+            scoped[slot] = entries;
+        } else if (count == entries.length) {
+            entries = Arrays.copyOf(entries, count * 2);
+            scoped[slot] = entries;
+        }
+        entries[count] = v;
+        scopedCounts[slot] = count + 1;
+        visible[slot] = v;
+        maxSlot = Math.max(maxSlot, slot);
+
+        Label end = v.getEnd();
+        if (end != null) {
+            v.setNextEnding(endings.put(end, v));
+        }
+    }
+
+    /**
+     * removes all variables whose scope ends at the given label
+     */
+    void expire(Label label) {
+        if (endings.isEmpty()) {
+            return;
+        }
+
+        Variable v = endings.remove(label);
+        while (v != null) {
+            remove(v);
+            Variable next = v.getNextEnding();
+            v.setNextEnding(null);
+            v = next;
+        }
+    }
+
+    void ensureCapacity(int slots) {
+        if (slots <= visible.length) {
+            return;
+        }
+
+        int newSlots = Math.max(slots, visible.length * 2);
+        visible = Arrays.copyOf(visible, newSlots);
+        scoped = Arrays.copyOf(scoped, newSlots);
+        scopedCounts = Arrays.copyOf(scopedCounts, newSlots);
+        storedTypes = Arrays.copyOf(storedTypes, newSlots);
+    }
+
+    void clear() {
+        for (int slot = 0; slot <= maxSlot; slot++) {
+            Variable[] entries = scoped[slot];
+            if (entries != null) {
+                Arrays.fill(entries, 0, scopedCounts[slot], null);
+            }
+            scopedCounts[slot] = 0;
+            visible[slot] = null;
+            storedTypes[slot] = Types.UNKNOWN;
+        }
+        maxSlot = -1;
+        endings.clear();
+    }
+
+    private void remove(Variable v) {
+        int slot = v.getSlot();
+        Variable[] entries = scoped[slot];
+        int count = scopedCounts[slot];
+        for (int i = count - 1; i >= 0; i--) {
+            if (entries[i] == v) {
+                System.arraycopy(entries, i + 1, entries, i, count - i - 1);
+                entries[--count] = null;
+                scopedCounts[slot] = count;
+                visible[slot] = (count > 0) ? entries[count - 1] : null;
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * checks that simulating a method allocates no more than a recorded budget per visited instruction. Methods of
+ * {@link ParameterStackMethodVisitorTest} are parsed once, then replayed many times into a pooled visitor, so that
+ * only the allocations of the simulation itself are measured, after the jit has had a chance to compile it. The
+ * measurement is repeated over several rounds and the least is kept, so a round that catches the jit recompiling
+ * doesn't fail the test. When a change makes a path allocate more, either fix it, or raise the budget knowingly.
+ */
+public class AllocationBudgetTest {
+
+    private static final int WARMUP_RUNS = 20000;
+    private static final int MEASURED_RUNS = 5000;
+    private static final int MEASURED_ROUNDS = 5;
+
+    private static com.sun.management.ThreadMXBean threads;
+    private static ClassNode testClass;
+    private static ClassNode budgetClass;
+
+    @BeforeClass
+    public static void beforeClass() throws IOException {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        testClass = readClass(ParameterStackMethodVisitorTest.class);
+        budgetClass = readClass(AllocationBudgetTest.class);
+    }
+
+    // budgets are about a quarter over what was measured on jdk 17, where the instructions themselves allocate
+    // nothing. What is allocated is the 40 byte Variable for each local variable entry, and the stack snapshots
+    // taken at forward branches that leave values on the stack
+
+    @Test
+    public void testConsts() {
+        // measured 6.7, 29 Variables and the snapshots at its conditional expressions
+        assertBudget("consts", 8.5);
+    }
+
+    @Test
+    public void testArrays() {
+        // measured 1.06, exactly its 9 Variables, as its branches leave the stack empty
+        assertBudget("arrays", 1.3);
+    }
+
+    @Test
+    public void testFields() {
+        // measured 5.5, exactly its 3 Variables
+        assertBudget("fields", 7.0);
+    }
+
+    @Test
+    public void testLightweightStacks() {
+        // measured 5.5, the same Variables as the array stack
+        assertBudget("fields", 7.0, TypeParameterStack::new);
+        assertBudget("fields", 7.0, DepthParameterStack::new);
+    }
+
+    @Test
+    public void testArrayCreation() {
+        // measured 0.0, as with no locals and no branches there is nothing to allocate, even though each array type
+        // is looked up. The slack absorbs a stray allocation by the jvm, such as a TLAB refill, while one object per
+        // run of the method, or a descriptor built per lookup as once measured at 23.3, still fails
+        assertBudget(budgetClass, "newArrays", 0.5, ArrayParameterStack::new);
+        assertBudget(budgetClass, "newArrays", 0.5, TypeParameterStack::new);
+        assertBudget(budgetClass, "newArrays", 0.5, DepthParameterStack::new);
+    }
+
+    public static Object newArrays() {
+        return new Object[] { new int[1], new String[2], new long[3][], new Object[4][5] };
+    }
+
+    private void assertBudget(String methodName, double bytesPerInstruction) {
+        assertBudget(methodName, bytesPerInstruction, ArrayParameterStack::new);
+    }
+
+    private void assertBudget(String methodName, double bytesPerInstruction, Supplier<ParameterStack> stackFactory) {
+        assertBudget(testClass, methodName, bytesPerInstruction, stackFactory);
+    }
+
+    private void assertBudget(ClassNode cls, String methodName, double bytesPerInstruction, Supplier<ParameterStack> stackFactory) {
+        MethodNode method = null;
+        for (MethodNode m : cls.methods) {
+            if (m.name.equals(methodName)) {
+                method = m;
+            }
+        }
+        Assert.assertNotNull(methodName, method);
+
+        int instructions = 0;
+        for (AbstractInsnNode insn : method.instructions) {
+            if (insn.getOpcode() >= 0) {
+                instructions++;
+            }
+        }
+
+        ParameterStackMethodVisitorPool<ParameterStackMethodVisitor> pool = new ParameterStackMethodVisitorPool<>(
+                () -> new ParameterStackMethodVisitor(Opcodes.ASM6, false, null, stackFactory.get()));
+        boolean isStatic = (method.access & Opcodes.ACC_STATIC) != 0;
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            replay(method, pool.acquire(isStatic, null));
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long allocated = Long.MAX_VALUE;
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            long before = threads.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < MEASURED_RUNS; i++) {
+                replay(method, pool.acquire(isStatic, null));
+            }
+            allocated = Math.min(allocated, threads.getThreadAllocatedBytes(threadId) - before);
+        }
+
+        double measured = (double) allocated / ((long) MEASURED_RUNS * instructions);
+        Assert.assertTrue(methodName + " allocated " + measured + " bytes per instruction, over its budget of " + bytesPerInstruction,
+                measured <= bytesPerInstruction);
+    }
+
+    private static ClassNode readClass(Class<?> cls) throws IOException {
+        ClassNode node = new ClassNode();
+        try (InputStream clsStream = cls.getResourceAsStream("/" + cls.getName().replace('.', '/') + ".class")) {
+            new ClassReader(clsStream).accept(node, ClassReader.SKIP_FRAMES);
+        }
+        return node;
+    }
+
+    /**
+     * feeds a parsed method to a visitor as a ClassReader would, without the labels being recreated. The lists are
+     * walked without iterators, so the replay itself allocates nothing, even once other tests have left the jit
+     * unable to eliminate them.
+     */
+    private static void replay(MethodNode method, MethodVisitor mv) {
+        mv.visitCode();
+        for (int i = 0; i < method.tryCatchBlocks.size(); i++) {
+            method.tryCatchBlocks.get(i).accept(mv);
+        }
+        for (AbstractInsnNode insn = method.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+            insn.accept(mv);
+        }
+        for (int i = 0; i < method.localVariables.size(); i++) {
+            method.localVariables.get(i).accept(mv);
+        }
+        mv.visitMaxs(method.maxStack, method.maxLocals);
+        mv.visitEnd();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+
+public class ClassSourceTest {
+
+    @Test
+    public void testMappedJar() throws Exception {
+        Path asmJar = Paths.get(ClassReader.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        assertSameClasses(asmJar);
+    }
+
+    @Test
+    public void testStoredAndDeflatedEntries() throws Exception {
+        Path classes = Paths.get(ClassSourceTest.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        File jar = File.createTempFile("asm-stack", ".jar");
+        jar.deleteOnExit();
+
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(jar))) {
+            zos.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+            zos.write("Manifest-Version: 1.0\n".getBytes("UTF-8"));
+            boolean stored = false;
+            for (Path path : new DirectoryClassSource(classes).classFiles()) {
+                byte[] bytes = Files.readAllBytes(path);
+                ZipEntry entry = new ZipEntry(classes.relativize(path).toString().replace(File.separatorChar, '/'));
+                if (stored) {
+                    CRC32 crc = new CRC32();
+                    crc.update(bytes);
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(bytes.length);
+                    entry.setCrc(crc.getValue());
+                }
+                stored = !stored;
+                zos.putNextEntry(entry);
+                zos.write(bytes);
+            }
+        }
+
+        assertSameClasses(jar.toPath());
+    }
+
+    @Test
+    public void testJrt() throws Exception {
+        List<String> modules;
+        try {
+            modules = ClassSource.jrtModules();
+        } catch (IOException e) {
+            Assume.assumeNoException(e);
+            return;
+        }
+        Assert.assertTrue(modules.contains("java.base"));
+
+        List<MethodResult> results = new ParallelAnalyzer(AnalysisMode.TYPES, 2).analyze(ClassSource.jrt("java.logging"));
+        Assert.assertTrue(results.stream().anyMatch(r -> r.getClassName().equals("java/util/logging/Logger")));
+        for (MethodResult result : results) {
+            // java.base is not read
+            Assert.assertFalse(result.getId(), result.getClassName().startsWith("java/lang/"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testJrtUnknownModule() throws Exception {
+        try {
+            ClassSource.jrtModules();
+        } catch (IOException e) {
+            Assume.assumeNoException(e);
+        }
+        ClassSource.jrt("no.such.module").read(cls -> {
+        });
+    }
+
+    private static void assertSameClasses(Path jar) throws Exception {
+        List<byte[]> expected = new ArrayList<>();
+        new JarClassSource(jar).read(expected::add);
+        List<byte[]> actual = new ArrayList<>();
+        ClassSource source = ClassSource.of(jar);
+        Assert.assertTrue(source instanceof MappedJarClassSource);
+        source.read(actual::add);
+
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MethodDescriptorCacheTest {
+
+    @Test
+    public void testParse() {
+        MethodDescriptor md = MethodDescriptorCache.get("(I[JLjava/lang/String;D[[Ljava/util/List;)Ljava/lang/Object;");
+        Assert.assertEquals(5, md.getArgumentCount());
+        Assert.assertEquals(6, md.getArgumentSlots());
+        Assert.assertSame(TypeDescriptor.of("I"), md.getArgumentType(0));
+        Assert.assertSame(TypeDescriptor.of("[J"), md.getArgumentType(1));
+        Assert.assertSame(TypeDescriptor.of("Ljava/lang/String;"), md.getArgumentType(2));
+        Assert.assertSame(TypeDescriptor.of("D"), md.getArgumentType(3));
+        Assert.assertSame(TypeDescriptor.of("[[Ljava/util/List;"), md.getArgumentType(4));
+        Assert.assertSame(TypeDescriptor.of("Ljava/lang/Object;"), md.getReturnType());
+
+        MethodDescriptor none = MethodDescriptorCache.get("()V");
+        Assert.assertEquals(0, none.getArgumentCount());
+        Assert.assertEquals(0, none.getReturnType().getCategory());
+    }
+
+    @Test
+    public void testCounters() {
+        String descriptor = "(Lcom/mebigfatguy/asmstack/MethodDescriptorCacheTest;)J";
+        long misses = MethodDescriptorCache.getMisses();
+        MethodDescriptor md = MethodDescriptorCache.get(descriptor);
+        Assert.assertTrue(MethodDescriptorCache.getMisses() > misses);
+
+        long hits = MethodDescriptorCache.getHits();
+        // an equal descriptor that isn't the same string still hits
+        Assert.assertSame(md, MethodDescriptorCache.get(new String(descriptor)));
+        Assert.assertTrue(MethodDescriptorCache.getHits() > hits);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.objectweb.asm.Opcodes;
+
+public class OpcodeEffectsTest {
+
+    @Test
+    public void testArithmetic() {
+        assertEffect(Opcodes.IADD, 2, Types.INT);
+        assertEffect(Opcodes.LSUB, 2, Types.LONG);
+        assertEffect(Opcodes.FMUL, 2, Types.FLOAT);
+        assertEffect(Opcodes.DREM, 2, Types.DOUBLE);
+        assertEffect(Opcodes.LNEG, 1, Types.LONG);
+        assertEffect(Opcodes.ISHL, 2, Types.INT);
+        assertEffect(Opcodes.LUSHR, 2, Types.LONG);
+        assertEffect(Opcodes.LXOR, 2, Types.LONG);
+        assertEffect(Opcodes.I2S, 1, Types.SHORT);
+        assertEffect(Opcodes.DCMPG, 2, Types.INT);
+    }
+
+    @Test
+    public void testArraysAndLocals() {
+        assertEffect(Opcodes.IALOAD, 2, Types.INT);
+        assertEffect(Opcodes.CALOAD, 2, Types.CHAR);
+        assertEffect(Opcodes.AASTORE, 3, Types.VOID);
+        assertEffect(Opcodes.ARRAYLENGTH, 1, Types.INT);
+        assertEffect(Opcodes.LLOAD, 0, Types.LONG);
+        assertEffect(Opcodes.ASTORE, 1, Types.VOID);
+    }
+
+    @Test
+    public void testFlow() {
+        assertEffect(Opcodes.IF_ACMPNE, 2, Types.VOID);
+        assertEffect(Opcodes.IFNULL, 1, Types.VOID);
+        Assert.assertFalse(OpcodeEffects.endsFlow(Opcodes.IFEQ));
+        Assert.assertTrue(OpcodeEffects.endsFlow(Opcodes.GOTO));
+        Assert.assertTrue(OpcodeEffects.endsFlow(Opcodes.ARETURN));
+        Assert.assertTrue(OpcodeEffects.endsFlow(Opcodes.RETURN));
+        Assert.assertTrue(OpcodeEffects.endsFlow(Opcodes.ATHROW));
+    }
+
+    @Test
+    public void testSpecial() {
+        int[] special = { Opcodes.ICONST_0, Opcodes.LDC, Opcodes.AALOAD, Opcodes.POP2, Opcodes.DUP, Opcodes.SWAP, Opcodes.ALOAD, Opcodes.NEWARRAY,
+                Opcodes.GETFIELD, Opcodes.INVOKEVIRTUAL, Opcodes.CHECKCAST, Opcodes.TABLESWITCH, Opcodes.JSR };
+        for (int opcode : special) {
+            Assert.assertFalse(String.valueOf(opcode), OpcodeEffects.isSimple(opcode));
+        }
+    }
+
+    private static void assertEffect(int opcode, int pops, int type) {
+        Assert.assertTrue(String.valueOf(opcode), OpcodeEffects.isSimple(opcode));
+        Assert.assertEquals(String.valueOf(opcode), pops, OpcodeEffects.pops(opcode));
+        Assert.assertEquals(String.valueOf(opcode), (type == Types.VOID) ? 0 : 1, OpcodeEffects.pushes(opcode));
+        Assert.assertEquals(String.valueOf(opcode), type, OpcodeEffects.type(opcode));
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+
+public class ParallelAnalyzerTest {
+
+    @Test
+    public void testJar() throws Exception {
+        Path asmJar = Paths.get(ClassReader.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+
+        List<byte[]> classes = new ArrayList<>();
+        ClassSource.of(asmJar).read(classes::add);
+        List<MethodResult> sequential = new ArrayList<>();
+        for (byte[] cls : classes) {
+            sequential.addAll(ParameterStackClassVisitor.analyzeClass(cls, AnalysisMode.TYPES));
+        }
+
+        Assert.assertFalse(sequential.isEmpty());
+        Assert.assertEquals(sequential, new ParallelAnalyzer(AnalysisMode.TYPES, 1).analyze(asmJar));
+        Assert.assertEquals(sequential, new ParallelAnalyzer(AnalysisMode.TYPES, 4).analyze(asmJar));
+
+        ParallelAnalyzer sourceOrder = new ParallelAnalyzer(AnalysisMode.TYPES, 4);
+        sourceOrder.setLongestFirst(false);
+        Assert.assertEquals(sequential, sourceOrder.analyze(asmJar));
+
+        AnalysisStatistics statistics = sourceOrder.getStatistics();
+        Assert.assertEquals(classes.size(), statistics.getClassCount());
+        Assert.assertTrue(statistics.getMedianNanos() <= statistics.getP99Nanos());
+        Assert.assertTrue(statistics.getP99Nanos() <= statistics.getMaxNanos());
+    }
+
+    @Test
+    public void testStream() throws Exception {
+        Path asmJar = Paths.get(ClassReader.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        ParallelAnalyzer analyzer = new ParallelAnalyzer(AnalysisMode.VALUES, 3);
+
+        Set<MethodResult> streamed;
+        try (Stream<MethodResult> results = analyzer.stream(asmJar)) {
+            streamed = results.collect(Collectors.toSet());
+        }
+        Assert.assertEquals(new HashSet<>(analyzer.analyze(asmJar)), streamed);
+    }
+
+    @Test
+    public void testStreamBackpressure() throws Exception {
+        Path asmJar = Paths.get(ClassReader.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        AtomicInteger read = new AtomicInteger();
+        ClassSource counting = classConsumer -> ClassSource.of(asmJar).read(cls -> {
+            read.incrementAndGet();
+            classConsumer.accept(cls);
+        });
+
+        ParallelAnalyzer analyzer = new ParallelAnalyzer(AnalysisMode.DEPTH, 2);
+        analyzer.setMaxInFlightClasses(2);
+        try (Stream<MethodResult> results = analyzer.stream(counting)) {
+            Iterator<MethodResult> it = results.iterator();
+            Assert.assertTrue(it.hasNext());
+            it.next();
+            Thread.sleep(200);
+
+            // one class consumed, two in flight, and one read but waiting for a slot
+            Assert.assertTrue(String.valueOf(read.get()), read.get() <= 4);
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testStreamFailure() {
+        ClassSource broken = classConsumer -> classConsumer.accept(new byte[] { 1, 2, 3 });
+        try (Stream<MethodResult> results = new ParallelAnalyzer(AnalysisMode.TYPES, 1).stream(broken)) {
+            results.count();
+        }
+    }
+
+    @Test(timeout = 10000, expected = StackOverflowError.class)
+    public void testStreamError() throws Exception {
+        Path asmJar = Paths.get(ClassReader.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        try (Stream<MethodResult> results = AnalysisStream.open(cls -> {
+            throw new StackOverflowError();
+        }, ClassSource.of(asmJar), 2, 2)) {
+            results.count();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testStreamDroppedWithoutClose() throws Exception {
+        Path asmJar = Paths.get(ClassReader.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        ClassSource dropped = new ClassSource() {
+            @Override
+            public void read(Consumer<byte[]> classConsumer) throws IOException {
+                ClassSource.of(asmJar).read(classConsumer);
+            }
+
+            @Override
+            public String toString() {
+                return "dropped stream source";
+            }
+        };
+
+        ParallelAnalyzer analyzer = new ParallelAnalyzer(AnalysisMode.DEPTH, 1);
+        analyzer.setMaxInFlightClasses(1);
+        Assert.assertTrue(analyzer.stream(dropped).findFirst().isPresent());
+        Assert.assertNotNull(readerOf(dropped));
+
+        Thread reader;
+        while ((reader = readerOf(dropped)) != null) {
+            System.gc();
+            reader.join(100);
+        }
+    }
+
+    private static Thread readerOf(ClassSource source) {
+        String name = "asm-stack reader of " + source;
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.getName().equals(name) && t.isAlive()) {
+                return t;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testCostEstimate() throws Exception {
+        List<byte[]> classes = new ArrayList<>();
+        ClassSource.of(Paths.get(ParameterStackMethodVisitor.class.getProtectionDomain().getCodeSource().getLocation().toURI())).read(classes::add);
+
+        long visitorCost = 0;
+        long fieldCost = 0;
+        for (byte[] cls : classes) {
+            String name = new ClassReader(cls).getClassName();
+            if (name.equals("com/mebigfatguy/asmstack/ParameterStackMethodVisitor")) {
+                visitorCost = ClassCost.estimate(cls);
+            } else if (name.equals("com/mebigfatguy/asmstack/Field")) {
+                fieldCost = ClassCost.estimate(cls);
+            }
+        }
+
+        Assert.assertTrue(fieldCost > 0);
+        Assert.assertTrue(visitorCost > (5 * fieldCost));
+    }
+
+    @Test
+    public void testDirectory() throws Exception {
+        Path testClasses = Paths.get(ParallelAnalyzerTest.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+
+        List<MethodResult> results = new ParallelAnalyzer(AnalysisMode.DEPTH, 3).analyze(testClasses);
+        Assert.assertTrue(results.stream().anyMatch(r -> r.getClassName().equals("com/mebigfatguy/asmstack/ParallelAnalyzerTest")
+                && r.getMethodName().equals("testDirectory")));
+    }
+}
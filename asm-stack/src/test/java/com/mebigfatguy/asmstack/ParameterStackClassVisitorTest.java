@@ -0,0 +1,133 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+public class ParameterStackClassVisitorTest {
+
+    @Test
+    public void testAnalyzeClass() throws IOException {
+        byte[] classBytes = classBytes(ParameterStackMethodVisitorTest.class);
+
+        Map<String, MethodResult> values = byName(ParameterStackClassVisitor.analyzeClass(classBytes));
+        MethodResult test3 = values.get("test3(II)J");
+        Assert.assertEquals("com/mebigfatguy/asmstack/ParameterStackMethodVisitorTest", test3.getClassName());
+        Assert.assertEquals("(II)J", test3.getDescriptor());
+        Assert.assertEquals(2, test3.getMaxDepth());
+        Assert.assertEquals(2, test3.getCallSiteCount());
+
+        MethodResult test4 = values.get("test4(Ljava/util/List;Ljava/lang/String;)Ljava/lang/String;");
+        CallSiteResult test3Call = test4.getCallSites().stream().filter(c -> c.getName().equals("test3")).findFirst().get();
+        Assert.assertEquals(0b11, test3Call.getConstantArguments());
+        Assert.assertTrue(test4.getCallSites().stream().anyMatch(c -> c.getName().equals("get") && c.isConstantArgument(0)));
+
+        Map<String, MethodResult> depths = byName(ParameterStackClassVisitor.analyzeClass(classBytes, AnalysisMode.DEPTH));
+        Assert.assertEquals(0, depths.get(test3Call.getName() + test3Call.getDescriptor()).getCallSites().get(0).getConstantArguments());
+
+        for (AnalysisMode mode : AnalysisMode.values()) {
+            Map<String, MethodResult> results = byName(ParameterStackClassVisitor.analyzeClass(classBytes, mode));
+            Assert.assertEquals(mode.name(), values.keySet(), results.keySet());
+            for (MethodResult result : results.values()) {
+                Assert.assertEquals(result.getId(), values.get(result.getMethodName() + result.getDescriptor()).getMaxDepth(), result.getMaxDepth());
+            }
+        }
+    }
+
+    @Test
+    public void testAbstractMethods() throws IOException {
+        Assert.assertTrue(ParameterStackClassVisitor.analyzeClass(classBytes(Runnable.class)).isEmpty());
+    }
+
+    @Test
+    public void testHandlerDepth() throws IOException {
+        byte[] classBytes = classBytes(ParameterStackClassVisitorTest.class);
+        for (AnalysisMode mode : AnalysisMode.values()) {
+            // nothing is pushed, the caught exception is there on entering the handler
+            Assert.assertEquals(mode.name(), 1, byName(ParameterStackClassVisitor.analyzeClass(classBytes, mode)).get("swallow()V").getMaxDepth());
+        }
+    }
+
+    @Test
+    public void testReentrantAnalysis() throws IOException {
+        byte[] outerBytes = classBytes(ParameterStackMethodVisitorTest.class);
+        byte[] innerBytes = classBytes(ParameterStackClassVisitorTest.class);
+        List<MethodResult> expected = ParameterStackClassVisitor.analyzeClass(outerBytes);
+        List<MethodResult> expectedInner = ParameterStackClassVisitor.analyzeClass(innerBytes);
+
+        // a downstream visitor that analyzes another class, in the same mode, in the middle of each method
+        List<MethodResult> inner = new ArrayList<>();
+        ClassVisitor nesting = new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                return new MethodVisitor(Opcodes.ASM9) {
+                    @Override
+                    public void visitInsn(int opcode) {
+                        if (inner.isEmpty()) {
+                            inner.addAll(ParameterStackClassVisitor.analyzeClass(innerBytes));
+                        }
+                    }
+                };
+            }
+        };
+
+        List<MethodResult> outer = new ArrayList<>();
+        new ClassReader(outerBytes).accept(new ParameterStackClassVisitor(Opcodes.ASM9, nesting, AnalysisMode.VALUES, outer::add),
+                AnalysisMode.VALUES.getReaderFlags());
+        Assert.assertEquals(expected, outer);
+        Assert.assertEquals(expectedInner, inner);
+    }
+
+    public static void swallow() {
+        try {
+            Thread.yield();
+        } catch (Throwable t) {
+            // nothing to do
+        }
+    }
+
+    private static Map<String, MethodResult> byName(List<MethodResult> results) {
+        return results.stream().collect(Collectors.toMap(r -> r.getMethodName() + r.getDescriptor(), Function.identity()));
+    }
+
+    private static byte[] classBytes(Class<?> cls) throws IOException {
+        try (InputStream clsStream = cls.getResourceAsStream("/" + cls.getName().replace('.', '/') + ".class")) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = clsStream.read(buffer)) >= 0) {
+                baos.write(buffer, 0, len);
+            }
+            return baos.toByteArray();
+        }
+    }
+}
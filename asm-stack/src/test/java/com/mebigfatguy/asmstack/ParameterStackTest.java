@@ -0,0 +1,152 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Supplier;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class ParameterStackTest {
+
+    private ParameterStack stack;
+
+    public ParameterStackTest(String name, Supplier<ParameterStack> factory) {
+        stack = factory.get();
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> stacks() {
+        Supplier<ParameterStack> array = ArrayParameterStack::new;
+        Supplier<ParameterStack> linked = LinkedParameterStack::new;
+        return Arrays.asList(new Object[] { "array", array }, new Object[] { "linked", linked });
+    }
+
+    @Test
+    public void testValues() {
+        stack.pushInt(Types.INT, 5);
+        stack.pushLong(6L);
+        stack.pushFloat(7.0f);
+        stack.pushDouble(8.0);
+        stack.pushConstant(Types.STRING, "nine");
+
+        Assert.assertEquals("nine", stack.pop().getValue());
+        Assert.assertEquals(Double.valueOf(8.0), stack.pop().getValue());
+        Assert.assertEquals(Float.valueOf(7.0f), stack.pop().getValue());
+        Assert.assertEquals(Long.valueOf(6L), stack.pop().getValue());
+        Assert.assertEquals(Integer.valueOf(5), stack.peek(0).getValue());
+        Assert.assertSame(stack.peek(0), stack.peek(0));
+        stack.pop(1);
+        Assert.assertTrue(stack.isEmpty());
+    }
+
+    @Test
+    public void testDupX() {
+        pushAll(1, 2, 3, 4);
+        stack.dupX(2, 2);
+        assertStack(3, 4, 1, 2, 3, 4);
+
+        stack.clear();
+        pushAll(1, 2, 3);
+        stack.dupX(1, 2);
+        assertStack(3, 1, 2, 3);
+
+        stack.clear();
+        pushAll(1, 2);
+        stack.dupX(1, 0);
+        assertStack(1, 2, 2);
+
+        stack.clear();
+        pushAll(1, 2);
+        stack.swap();
+        assertStack(2, 1);
+    }
+
+    @Test
+    public void testRetype() {
+        stack.push(Types.UNKNOWN);
+        stack.pushInt(Types.INT, 1);
+        Parameter p = stack.peek(1);
+        stack.retype(1, Types.STRING);
+
+        Assert.assertEquals(Types.STRING, stack.typeAt(1));
+        Assert.assertEquals("Ljava/lang/String;", stack.peek(1).getTypeSignature());
+        Assert.assertNull(p.getTypeSignature());
+        Assert.assertEquals(Integer.valueOf(1), stack.peek(0).getValue());
+    }
+
+    @Test
+    public void testSharedParameters() {
+        stack.pushInt(Types.INT, 5);
+        stack.pushInt(Types.BYTE, 100);
+        stack.pushLong(1L);
+        stack.push(Types.STRING);
+        stack.pushConstant(Types.STRING, "six");
+
+        Parameter constant = stack.pop();
+        Assert.assertEquals("six", constant.getValue());
+        Assert.assertSame(TypeDescriptor.of("Ljava/lang/String;").getParameter(), stack.pop());
+        Assert.assertSame(ConstantParameter.primitive(Types.LONG, 1L), stack.pop());
+        Assert.assertSame(ConstantParameter.primitive(Types.BYTE, 100), stack.peek(0));
+        Assert.assertNotSame(stack.peek(0), stack.peek(1));
+
+        Parameter changed = stack.peek(1).withValue(Integer.valueOf(6));
+        Assert.assertEquals(Integer.valueOf(5), stack.peek(1).getValue());
+        Assert.assertEquals(Integer.valueOf(6), changed.getValue());
+
+        stack.push(changed.withTypeSignature("S"));
+        Assert.assertEquals("S", stack.peek(0).getTypeSignature());
+        Assert.assertSame(ConstantParameter.primitive(Types.SHORT, 6), stack.peek(0));
+    }
+
+    @Test
+    public void testVariableSlotUnknown() {
+        stack.pushInt(Types.INT, 5);
+        Assert.assertEquals(-1, stack.peek(0).getVariableSlot());
+    }
+
+    @Test
+    public void testSnapshot() {
+        pushAll(1, 2);
+        ParameterStack.Snapshot snapshot = stack.snapshot();
+        stack.pop(2);
+        pushAll(3);
+        Assert.assertEquals(2, snapshot.size());
+
+        stack.restore(snapshot);
+        assertStack(1, 2);
+    }
+
+    private void pushAll(int... values) {
+        for (int v : values) {
+            stack.pushInt(Types.INT, v);
+        }
+    }
+
+    private void assertStack(int... values) {
+        Assert.assertEquals(values.length, stack.size());
+        for (int i = 0; i < values.length; i++) {
+            Assert.assertEquals(Integer.valueOf(values[i]), stack.peek(values.length - i - 1).getValue());
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.asm.Opcodes;
+
+public class ResultCacheTest {
+
+    private Path directory;
+    private List<byte[]> classes;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("asm-stack-cache");
+        classes = new ArrayList<>();
+        ClassSource.of(Paths.get(ResultCacheTest.class.getProtectionDomain().getCodeSource().getLocation().toURI())).read(classes::add);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        ResultCache cache = new ResultCache(directory, Long.MAX_VALUE);
+        boolean sawDynamic = false;
+        for (byte[] cls : classes) {
+            List<MethodResult> analyzed = ParameterStackClassVisitor.analyzeClass(cls, AnalysisMode.VALUES);
+            Assert.assertNull(cache.get(cls, AnalysisMode.VALUES));
+            cache.put(cls, AnalysisMode.VALUES, analyzed);
+            Assert.assertEquals(analyzed, cache.get(cls, AnalysisMode.VALUES));
+            Assert.assertNull(cache.get(cls, AnalysisMode.DEPTH));
+            sawDynamic |= analyzed.stream().flatMap(r -> r.getCallSites().stream()).anyMatch(c -> c.getOpcode() == Opcodes.INVOKEDYNAMIC);
+        }
+        Assert.assertTrue(sawDynamic);
+        Assert.assertEquals(classes.size(), cache.getHits());
+
+        ResultCache reopened = new ResultCache(directory, Long.MAX_VALUE);
+        Assert.assertEquals(cache.getSize(), reopened.getSize());
+        for (byte[] cls : classes) {
+            Assert.assertEquals(ParameterStackClassVisitor.analyzeClass(cls, AnalysisMode.VALUES), reopened.get(cls, AnalysisMode.VALUES));
+        }
+    }
+
+    @Test
+    public void testAnalyzerSkipsCachedClasses() throws IOException {
+        ParallelAnalyzer analyzer = new ParallelAnalyzer(AnalysisMode.TYPES, 2);
+        List<MethodResult> uncached = analyzer.analyze(classes);
+
+        analyzer.setResultCache(new ResultCache(directory, Long.MAX_VALUE));
+        Assert.assertEquals(uncached, analyzer.analyze(classes));
+        Assert.assertEquals(0, analyzer.getResultCache().getHits());
+
+        analyzer.setResultCache(new ResultCache(directory, Long.MAX_VALUE));
+        Assert.assertEquals(uncached, analyzer.analyze(classes));
+        Assert.assertEquals(classes.size(), analyzer.getResultCache().getHits());
+        Assert.assertEquals(0, analyzer.getResultCache().getMisses());
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        ResultCache unbounded = new ResultCache(directory, Long.MAX_VALUE);
+        for (byte[] cls : classes) {
+            unbounded.analyze(cls, AnalysisMode.DEPTH);
+        }
+        long maxBytes = unbounded.getSize() / 2;
+
+        ResultCache bounded = new ResultCache(directory, maxBytes);
+        Assert.assertTrue(bounded.getSize() <= maxBytes);
+
+        byte[] first = classes.get(0);
+        bounded.analyze(first, AnalysisMode.DEPTH);
+        for (byte[] cls : classes) {
+            bounded.analyze(cls, AnalysisMode.DEPTH);
+            // keep using the first class, so it's never the least recently used
+            Assert.assertNotNull(bounded.get(first, AnalysisMode.DEPTH));
+            Assert.assertTrue(bounded.getSize() <= maxBytes);
+        }
+    }
+
+    @Test
+    public void testStaleTempFilesSwept() throws IOException {
+        Path shard = Files.createDirectories(directory.resolve("ab"));
+        Path stale = Files.createTempFile(shard, "ab", ".tmp");
+        Path writing = Files.createTempFile(shard, "ab", ".tmp");
+        Files.setLastModifiedTime(stale, FileTime.fromMillis(System.currentTimeMillis() - (2 * ResultCache.STALE_TEMP_MILLIS)));
+
+        ResultCache cache = new ResultCache(directory, Long.MAX_VALUE);
+        Assert.assertFalse(Files.exists(stale));
+        // may still be being written by another process
+        Assert.assertTrue(Files.exists(writing));
+        Assert.assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testRecentUseNotTouched() throws IOException {
+        ResultCache cache = new ResultCache(directory, Long.MAX_VALUE);
+        byte[] cls = classes.get(0);
+        cache.analyze(cls, AnalysisMode.TYPES);
+        Path file;
+        try (Stream<Path> paths = Files.walk(directory)) {
+            file = paths.filter(p -> p.toString().endsWith(".asrc")).findFirst().get();
+        }
+
+        FileTime recent = FileTime.fromMillis(System.currentTimeMillis() - (ResultCache.TOUCH_INTERVAL_MILLIS / 2));
+        Files.setLastModifiedTime(file, recent);
+        recent = Files.getLastModifiedTime(file);
+        Assert.assertNotNull(cache.get(cls, AnalysisMode.TYPES));
+        Assert.assertEquals(recent, Files.getLastModifiedTime(file));
+
+        FileTime old = FileTime.fromMillis(System.currentTimeMillis() - (2 * ResultCache.TOUCH_INTERVAL_MILLIS));
+        Files.setLastModifiedTime(file, old);
+        Assert.assertNotNull(cache.get(cls, AnalysisMode.TYPES));
+        Assert.assertTrue(Files.getLastModifiedTime(file).compareTo(recent) > 0);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.objectweb.asm.Type;
+
+public class TypesTest {
+
+    @Test
+    public void testIntern() {
+        Assert.assertEquals(Types.INT, Types.intern("I"));
+        Assert.assertEquals(Types.STRING, Types.internObjectType("java/lang/String"));
+        Assert.assertEquals(Types.UNKNOWN, Types.intern(null));
+        Assert.assertEquals(Types.LONG, Types.intern("(IJ)V", 2, 3));
+
+        int list = Types.intern("Ljava/util/List;");
+        Assert.assertEquals(list, Types.internObjectType("java/util/List"));
+        Assert.assertEquals(list, Types.intern("(Ljava/util/List;)V", 1, 17));
+        Assert.assertSame(TypeDescriptor.of("Ljava/util/List;"), Types.descriptor(list));
+        Assert.assertEquals("Ljava/util/List;", Types.signature(list));
+    }
+
+    @Test
+    public void testDescriptors() {
+        TypeDescriptor wide = TypeDescriptor.of("D");
+        Assert.assertEquals(Type.DOUBLE, wide.getSort());
+        Assert.assertEquals(2, wide.getCategory());
+        Assert.assertTrue(wide.isWide());
+        Assert.assertEquals(0, TypeDescriptor.of("V").getCategory());
+        Assert.assertEquals(1, TypeDescriptor.of("Ljava/lang/Object;").getCategory());
+
+        TypeDescriptor matrix = TypeDescriptor.of("[[Ljava/lang/String;");
+        Assert.assertEquals(Type.ARRAY, matrix.getSort());
+        Assert.assertTrue(matrix.isArray());
+        Assert.assertSame(TypeDescriptor.of("[Ljava/lang/String;"), matrix.getComponentType());
+        Assert.assertSame(TypeDescriptor.of("Ljava/lang/String;"), matrix.getComponentType().getComponentType());
+        Assert.assertFalse(matrix.getComponentType().getComponentType().isArray());
+        Assert.assertNull(TypeDescriptor.of("I").getComponentType());
+    }
+
+    @Test
+    public void testArrays() {
+        int ints = Types.arrayOf(Types.INT);
+        Assert.assertEquals("[I", Types.signature(ints));
+        Assert.assertEquals(ints, Types.arrayOf(Types.INT));
+        Assert.assertEquals("[[I", Types.signature(Types.arrayOf(ints)));
+        Assert.assertEquals(Types.UNKNOWN, Types.arrayOf(Types.UNKNOWN));
+
+        Assert.assertEquals(Types.INT, Types.componentOf(ints));
+        Assert.assertEquals(Types.STRING, Types.componentOf(Types.arrayOf(Types.STRING)));
+        Assert.assertEquals(Types.OBJECT, Types.componentOf(Types.UNKNOWN));
+        Assert.assertEquals(Types.OBJECT, Types.componentOf(Types.STRING));
+    }
+
+    @Test
+    public void testMerge() {
+        Assert.assertEquals(Types.INT, Types.merge(Types.BYTE, Types.CHAR));
+        Assert.assertEquals(Types.STRING, Types.merge(Types.UNKNOWN, Types.STRING));
+        Assert.assertEquals(Types.OBJECT, Types.merge(Types.STRING, Types.THROWABLE));
+        Assert.assertEquals(Types.UNKNOWN, Types.merge(Types.INT, Types.LONG));
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+
+public class VariableScopeScalingTest {
+
+    private static final int SMALL = 2000;
+    private static final int LARGE = 16000;
+
+    @Test
+    public void testScopesExpireAtTheirEndLabel() {
+        ParameterStackMethodVisitor psmv = new ParameterStackMethodVisitor(Opcodes.ASM6, true);
+        Label start = new Label();
+        Label end1 = new Label();
+        Label end2 = new Label();
+
+        psmv.visitCode();
+        psmv.visitLabel(start);
+        psmv.visitLocalVariable("s", "Ljava/lang/String;", null, start, end2, 1);
+        psmv.visitLocalVariable("i", "Ljava/lang/Integer;", null, start, end1, 1);
+
+        psmv.visitVarInsn(Opcodes.ALOAD, 1);
+        Assert.assertEquals("Ljava/lang/Integer;", psmv.getStack().pop().getTypeSignature());
+
+        psmv.visitLabel(end1);
+        psmv.visitVarInsn(Opcodes.ALOAD, 1);
+        Assert.assertEquals("Ljava/lang/String;", psmv.getStack().pop().getTypeSignature());
+
+        psmv.visitLabel(end2);
+        psmv.visitVarInsn(Opcodes.ALOAD, 1);
+        Assert.assertNull(psmv.getStack().pop().getTypeSignature());
+    }
+
+    @Test
+    public void testLabelsScaleLinearly() {
+        // expiring a scope should only touch the variables ending at its label, so each variable is touched a
+        // fixed number of times however many there are, where scanning every variable at every label would touch
+        // each variable as many times as there are labels
+        long small = touchesPerVariable(SMALL);
+        long large = touchesPerVariable(LARGE);
+        Assert.assertEquals("Expiring " + LARGE + " scopes touched each variable " + large + " times, but " + SMALL + " scopes " + small + " times",
+                small, large);
+        Assert.assertTrue("Each variable was touched " + small + " times", small <= 4);
+    }
+
+    private long touchesPerVariable(int count) {
+        VariableTable variables = new VariableTable();
+        Label start = new Label();
+        Label[] ends = new Label[count];
+        long[] touches = new long[1];
+        for (int i = 0; i < count; i++) {
+            ends[i] = new Label();
+            variables.add(new CountingVariable(i, start, ends[i], touches));
+        }
+        touches[0] = 0;
+
+        for (int i = 0; i < count; i++) {
+            variables.expire(new Label());
+            Assert.assertNotNull(variables.get(i));
+            variables.expire(ends[i]);
+            Assert.assertNull(variables.get(i));
+        }
+        return touches[0] / count;
+    }
+
+    /**
+     * a variable that counts the calls made to it by the table
+     */
+    private static final class CountingVariable extends Variable {
+
+        private final long[] touches;
+
+        CountingVariable(int slot, Label start, Label end, long[] touches) {
+            super(slot, "v" + slot, "Ljava/lang/String;", start, end);
+            this.touches = touches;
+        }
+
+        @Override
+        public int getSlot() {
+            touches[0]++;
+            return super.getSlot();
+        }
+
+        @Override
+        public Label getEnd() {
+            touches[0]++;
+            return super.getEnd();
+        }
+
+        @Override
+        int getType() {
+            touches[0]++;
+            return super.getType();
+        }
+
+        @Override
+        Variable getNextEnding() {
+            touches[0]++;
+            return super.getNextEnding();
+        }
+
+        @Override
+        void setNextEnding(Variable v) {
+            touches[0]++;
+            super.setNextEnding(v);
+        }
+    }
+}
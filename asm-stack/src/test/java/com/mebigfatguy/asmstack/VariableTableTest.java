@@ -0,0 +1,72 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.objectweb.asm.Label;
+
+public class VariableTableTest {
+
+    @Test
+    public void testScopes() {
+        VariableTable variables = new VariableTable();
+        Label outerEnd = new Label();
+        Label innerEnd = new Label();
+        Variable outer = new Variable(1, "outer", "Ljava/lang/String;", new Label(), outerEnd);
+        Variable inner = new Variable(1, "inner", "I", new Label(), innerEnd);
+        Variable other = new Variable(40, "other", "J", new Label(), innerEnd);
+
+        variables.add(outer);
+        variables.add(inner);
+        variables.add(other);
+        Assert.assertSame(inner, variables.get(1));
+        Assert.assertSame(other, variables.get(40));
+        Assert.assertNull(variables.get(2));
+        Assert.assertNull(variables.get(1000));
+
+        variables.expire(innerEnd);
+        Assert.assertSame(outer, variables.get(1));
+        Assert.assertNull(variables.get(40));
+
+        variables.expire(outerEnd);
+        Assert.assertNull(variables.get(1));
+    }
+
+    @Test
+    public void testStoredTypes() {
+        VariableTable variables = new VariableTable();
+        variables.store(2, Types.STRING);
+        Assert.assertEquals(Types.STRING, variables.typeOf(2));
+        Assert.assertEquals(Types.UNKNOWN, variables.typeOf(3));
+
+        // a declared type wins over the stored one, an untyped parameter doesn't
+        variables.add(new Variable(2, "s", "Ljava/lang/CharSequence;", null, null));
+        Assert.assertEquals(Types.intern("Ljava/lang/CharSequence;"), variables.typeOf(2));
+        variables.add(new Variable(2, "p", null, null, null));
+        Assert.assertEquals(Types.STRING, variables.typeOf(2));
+
+        variables.forgetStores();
+        Assert.assertEquals(Types.UNKNOWN, variables.typeOf(2));
+
+        variables.store(5, Types.THROWABLE);
+        variables.clear();
+        Assert.assertNull(variables.get(2));
+        Assert.assertEquals(Types.UNKNOWN, variables.typeOf(5));
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * the fixed set of classes the visitor benchmarks run over: a list of large, branchy JDK classes, and every class of
+ * asm and commons-math, which are on the benchmark's class path anyway. Library classes are found by package, so
+ * the corpus is the same whether the benchmarks run from the shaded jar or from separate jars.
+ */
+final class Corpus {
+
+    private static final String[] JDK_CLASSES = { "java.lang.String", "java.lang.Character", "java.lang.invoke.MethodHandles",
+            "java.math.BigDecimal", "java.math.BigInteger", "java.text.DecimalFormat", "java.text.SimpleDateFormat",
+            "java.util.ArrayList", "java.util.Arrays", "java.util.Collections", "java.util.Formatter", "java.util.HashMap",
+            "java.util.TreeMap", "java.util.concurrent.ConcurrentHashMap", "java.util.concurrent.ForkJoinPool", "java.util.regex.Pattern",
+            "java.util.stream.Collectors", "java.util.zip.ZipFile" };
+
+    private static final String[][] LIBRARIES = { { "org.objectweb.asm.ClassReader", "org/objectweb/asm/" },
+            { "org.apache.commons.math3.util.FastMath", "org/apache/commons/math3/" } };
+
+    private final List<byte[]> classes;
+    private final long instructions;
+
+    private Corpus(List<byte[]> classes, long instructions) {
+        this.classes = classes;
+        this.instructions = instructions;
+    }
+
+    static Corpus load() {
+        List<byte[]> classes = new ArrayList<>();
+        try {
+            for (String jdkClass : JDK_CLASSES) {
+                try (InputStream is = ClassLoader.getSystemResourceAsStream(jdkClass.replace('.', '/') + ".class")) {
+                    classes.add(read(is));
+                }
+            }
+            for (String[] library : LIBRARIES) {
+                classes.addAll(libraryClasses(Class.forName(library[0]), library[1]));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ClassNotFoundException | URISyntaxException e) {
+            throw new IllegalStateException("Failed to find the benchmark corpus", e);
+        }
+
+        long instructions = 0;
+        for (byte[] cls : classes) {
+            ClassNode node = new ClassNode();
+            new ClassReader(cls).accept(node, ClassReader.SKIP_FRAMES);
+            for (MethodNode method : node.methods) {
+                for (AbstractInsnNode insn : method.instructions) {
+                    if (insn.getOpcode() >= 0) {
+                        instructions++;
+                    }
+                }
+            }
+        }
+
+        return new Corpus(classes, instructions);
+    }
+
+    List<byte[]> getClasses() {
+        return classes;
+    }
+
+    /**
+     * @return the number of bytecode instructions in all the methods of the corpus
+     */
+    long getInstructions() {
+        return instructions;
+    }
+
+    /**
+     * reads the classes under a package prefix from the jar, or directory, holding an anchor class, in name order
+     */
+    private static List<byte[]> libraryClasses(Class<?> anchor, String prefix) throws IOException, URISyntaxException {
+        Path location = Paths.get(anchor.getProtectionDomain().getCodeSource().getLocation().toURI());
+        TreeMap<String, byte[]> classes = new TreeMap<>();
+        if (Files.isDirectory(location)) {
+            Path root = location.resolve(prefix);
+            try (Stream<Path> paths = Files.walk(root)) {
+                for (Path path : (Iterable<Path>) paths::iterator) {
+                    if (path.toString().endsWith(".class")) {
+                        classes.put(location.relativize(path).toString(), Files.readAllBytes(path));
+                    }
+                }
+            }
+        } else {
+            try (JarFile jar = new JarFile(location.toFile())) {
+                Enumeration<JarEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    JarEntry entry = entries.nextElement();
+                    String name = entry.getName();
+                    if (name.startsWith(prefix) && name.endsWith(".class") && !name.endsWith("module-info.class")) {
+                        try (InputStream is = jar.getInputStream(entry)) {
+                            classes.put(name, read(is));
+                        }
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(classes.values());
+    }
+
+    private static byte[] read(InputStream is) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int len;
+        while ((len = is.read(buffer)) >= 0) {
+            baos.write(buffer, 0, len);
+        }
+        return baos.toByteArray();
+    }
+}
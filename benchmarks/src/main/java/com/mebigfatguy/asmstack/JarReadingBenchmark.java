@@ -0,0 +1,69 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.objectweb.asm.ClassReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * measures reading every class of a jar, the jar holding asm, which when run from the shaded benchmarks jar is that
+ * jar itself, through ZipFile's input streams, or by mapping the jar. Each class is handed to a ClassReader, as the
+ * analysis drivers do, so that the comparison includes what the reader costs to set up on the bytes. Run with -prof
+ * gc to compare the bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JarReadingBenchmark {
+
+    @Param({ "stream", "mapped" })
+    public String reader;
+
+    private Path jar;
+
+    @Setup
+    public void setup() throws URISyntaxException {
+        jar = Paths.get(ClassReader.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    }
+
+    @Benchmark
+    public void jar(Blackhole bh) throws Exception {
+        // a new source each time, so that opening the zip, or mapping it and parsing its directory, is measured too
+        ClassSource source = reader.equals("mapped") ? new MappedJarClassSource(jar) : new JarClassSource(jar);
+        source.read(classBytes -> bh.consume(new ClassReader(classBytes)));
+    }
+}
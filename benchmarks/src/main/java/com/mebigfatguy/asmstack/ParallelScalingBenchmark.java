@@ -0,0 +1,80 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * measures how {@link ParallelAnalyzer} scales with its parallelism, by analyzing the whole {@link Corpus} once per
+ * operation. Scaling is the score at a parallelism divided by the score at 1; settings above the machine's core
+ * count show the cost of oversubscription rather than scaling. The per class timings of the last run of each
+ * iteration are printed after it, to compare the tail of the longest first schedule with source order.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelScalingBenchmark {
+
+    @Param({ "1", "2", "4", "8", "16", "32" })
+    public int parallelism;
+
+    @Param({ "VALUES", "DEPTH" })
+    public AnalysisMode mode;
+
+    @Param({ "true", "false" })
+    public boolean longestFirst;
+
+    private List<byte[]> classes;
+    private ParallelAnalyzer analyzer;
+
+    @Setup
+    public void setup() {
+        classes = Corpus.load().getClasses();
+        analyzer = new ParallelAnalyzer(mode, parallelism);
+        analyzer.setLongestFirst(longestFirst);
+    }
+
+    @TearDown(Level.Iteration)
+    public void printStatistics() {
+        System.out.println();
+        System.out.println(analyzer.getStatistics());
+    }
+
+    @Benchmark
+    public List<MethodResult> corpus() {
+        return analyzer.analyze(classes);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * compares the array backed and the persistent linked parameter stacks, both for plain push and pop traffic,
+ * and for keeping the stack at every simulated instruction. This lives in the library's package to reach the
+ * package private stack operations the visitor uses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StackBenchmark {
+
+    private static final int INSTRUCTIONS = 64;
+
+    @Param({ "array", "linked" })
+    public String kind;
+
+    @Param({ "2", "16" })
+    public int depth;
+
+    private ParameterStack stack;
+    private ParameterStack.Snapshot[] frames;
+
+    @Setup
+    public void setup() {
+        stack = "array".equals(kind) ? new ArrayParameterStack() : new LinkedParameterStack();
+        frames = new ParameterStack.Snapshot[INSTRUCTIONS];
+    }
+
+    @Benchmark
+    public int pushPop() {
+        fill();
+        for (int i = 0; i < INSTRUCTIONS; i += 4) {
+            stack.pushInt(Types.INT, i);
+            stack.dupX(1, 0);
+            stack.pop(2);
+            stack.push(Types.STRING);
+            stack.pop(1);
+        }
+        return drain();
+    }
+
+    @Benchmark
+    public ParameterStack.Snapshot[] snapshotEveryInstruction() {
+        fill();
+        for (int i = 0; i < INSTRUCTIONS; i += 2) {
+            stack.pushInt(Types.INT, i);
+            frames[i] = stack.snapshot();
+            stack.pop(1);
+            frames[i + 1] = stack.snapshot();
+        }
+        drain();
+        return frames;
+    }
+
+    @Benchmark
+    public int restoreAtEveryLabel() {
+        fill();
+        ParameterStack.Snapshot atBranch = stack.snapshot();
+        int total = 0;
+        for (int i = 0; i < INSTRUCTIONS; i++) {
+            stack.push(Types.OBJECT);
+            stack.restore(atBranch);
+            total += stack.size();
+        }
+        drain();
+        return total;
+    }
+
+    private void fill() {
+        for (int i = 0; i < depth; i++) {
+            stack.push(Types.OBJECT);
+        }
+    }
+
+    private int drain() {
+        int size = stack.size();
+        stack.clear();
+        return size;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * asm-stack - an asm visitor that tracks the parameter stack
+ * Copyright 2018-2019 MeBigFatGuy.com
+ * Copyright 2018-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.asmstack;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.analysis.Analyzer;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.SourceInterpreter;
+import org.objectweb.asm.tree.analysis.SourceValue;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * measures how fast whole classes are simulated, reading a fixed {@link Corpus} with a ClassReader and running
+ * every method through the linear visitor, the dataflow engine, or, as a baseline, asm's own Analyzer with a
+ * SourceInterpreter. The reader engine only parses the code, to show the share of the time spent in asm itself.
+ * The instructions counter reports simulated instructions per second, and the bytes allocated per instruction
+ * are printed after each iteration; run with -prof gc for the collector's view as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VisitorThroughputBenchmark {
+
+    @Param({ "reader", "linear", "dataflow", "analyzer" })
+    public String engine;
+
+    private Corpus corpus;
+    private ParameterStackMethodVisitorPool<ParameterStackMethodVisitor> pool;
+
+    @Setup
+    public void setup() {
+        corpus = Corpus.load();
+        pool = new ParameterStackMethodVisitorPool<>(() -> new ParameterStackMethodVisitor(Opcodes.ASM9, false));
+    }
+
+    @Benchmark
+    public void corpus(Counters counters, Blackhole bh) throws AnalyzerException {
+        switch (engine) {
+            case "reader":
+                for (byte[] cls : corpus.getClasses()) {
+                    new ClassReader(cls).accept(new ReadingClassVisitor(), ClassReader.SKIP_FRAMES);
+                }
+                break;
+
+            case "linear":
+                for (byte[] cls : corpus.getClasses()) {
+                    new ClassReader(cls).accept(new LinearClassVisitor(bh), ClassReader.SKIP_FRAMES);
+                }
+                break;
+
+            case "dataflow":
+                for (byte[] cls : corpus.getClasses()) {
+                    new ClassReader(cls).accept(new DataflowClassVisitor(bh), ClassReader.SKIP_FRAMES);
+                }
+                break;
+
+            default:
+                for (byte[] cls : corpus.getClasses()) {
+                    ClassNode node = new ClassNode();
+                    new ClassReader(cls).accept(node, ClassReader.SKIP_FRAMES);
+                    for (MethodNode method : node.methods) {
+                        bh.consume(new Analyzer<SourceValue>(new SourceInterpreter()).analyze(node.name, method));
+                    }
+                }
+                break;
+        }
+        counters.instructions += corpus.getInstructions();
+    }
+
+    /**
+     * counts the instructions simulated, which jmh reports as a rate, and the bytes the benchmark thread allocated
+     * for them
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+
+        private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        private long startBytes;
+
+        public long instructions;
+
+        @Setup(Level.Iteration)
+        public void start() {
+            instructions = 0;
+            startBytes = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+
+        @TearDown(Level.Iteration)
+        public void end() {
+            long bytes = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - startBytes;
+            if (instructions > 0) {
+                System.out.printf(" %.2f bytes allocated per instruction%n", (double) bytes / instructions);
+            }
+        }
+    }
+
+    private static class ReadingClassVisitor extends ClassVisitor {
+
+        ReadingClassVisitor() {
+            super(Opcodes.ASM9);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            return new MethodVisitor(Opcodes.ASM9) {
+            };
+        }
+    }
+
+    private class LinearClassVisitor extends ClassVisitor {
+
+        private final Blackhole bh;
+
+        LinearClassVisitor(Blackhole bh) {
+            super(Opcodes.ASM9);
+            this.bh = bh;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            ParameterStackMethodVisitor psmv = pool.acquire((access & Opcodes.ACC_STATIC) != 0, null);
+            bh.consume(psmv);
+            return psmv;
+        }
+    }
+
+    private class DataflowClassVisitor extends ClassVisitor {
+
+        private final Blackhole bh;
+
+        DataflowClassVisitor(Blackhole bh) {
+            super(Opcodes.ASM9);
+            this.bh = bh;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            ParameterStackMethodVisitor psmv = pool.acquire((access & Opcodes.ACC_STATIC) != 0, null);
+            ParameterStackDataflowVisitor dataflow = new ParameterStackDataflowVisitor(Opcodes.ASM9, access, name, descriptor, signature, exceptions, psmv);
+            bh.consume(dataflow);
+            return dataflow;
+        }
+    }
+}